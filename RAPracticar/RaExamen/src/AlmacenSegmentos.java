@@ -0,0 +1,214 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Nivel en disco de los movimientos de una cuenta (ver Cuenta.setAlmacenSegmentos).
+ *
+ * Cuando las columnas en memoria de una cuenta superan maxBytesMemoria, la cuenta le pasa sus
+ * segmentos completos más antiguos: se comprimen con Deflater y se añaden al final de un archivo de
+ * segmentos propio de la cuenta, y la cuenta suelta sus columnas. Al volver a necesitarlos (una
+ * consulta por fechas, getMovimientos(), una exportación...) se leen y descomprimen, y se guardan en
+ * una pequeña caché LRU de tamanoCache segmentos, así que un recorrido en orden lee cada uno una sola vez.
+ *
+ * El archivo es solo memoria de reserva: los movimientos siguen estando en la copia de la cuenta y
+ * en el diario, así que se vacía al abrirlo y se borra al cerrarlo.
+ */
+public final class AlmacenSegmentos implements AutoCloseable {
+
+    // Bytes de columnas que una cuenta mantiene en memoria por defecto
+    public static final long MAX_BYTES_MEMORIA = 64L * 1024 * 1024;
+
+    // Segmentos descomprimidos que se guardan en la caché por defecto
+    public static final int TAMANO_CACHE = 4;
+
+    // Bytes de columnas por movimiento: tipo + céntimos + fecha
+    static final int BYTES_MOVIMIENTO = 1 + Long.BYTES + Long.BYTES;
+
+    /**
+     * Segmento guardado en el archivo: dónde está, cuántos movimientos tiene y la fecha del primero
+     * (para buscar por fechas sin leerlo).
+     */
+    static final class Bloque {
+        final long posicion;
+        final int longitud; // Bytes comprimidos
+        final int filas;
+        final long primeraFecha;
+
+        Bloque(long posicion, int longitud, int filas, long primeraFecha) {
+            this.posicion = posicion;
+            this.longitud = longitud;
+            this.filas = filas;
+            this.primeraFecha = primeraFecha;
+        }
+    }
+
+    private final File archivo;
+    private final FileChannel canal;
+    private final long maxBytesMemoria;
+    private final int tamanoCache;
+    private final Deflater compresor = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater descompresor = new Inflater();
+
+    // Columnas descomprimidas, la usada hace más tiempo primero (protegida por el monitor del almacén)
+    private final LinkedHashMap<Bloque, Cuenta.Columnas> cache;
+
+    // Búferes de trabajo (columnas sin comprimir y comprimidas), reutilizados entre segmentos
+    private ByteBuffer crudo = ByteBuffer.allocate(0);
+    private byte[] comprimido = new byte[0];
+
+    // Fin del archivo: donde se añade el siguiente segmento
+    private long fin;
+
+    /**
+     * Crea el almacén con la caché por defecto.
+     */
+    public AlmacenSegmentos(File archivo, long maxBytesMemoria) throws IOException {
+        this(archivo, maxBytesMemoria, TAMANO_CACHE);
+    }
+
+    /**
+     * Crea (o vacía) el archivo de segmentos.
+     * @param archivo         Archivo de segmentos de la cuenta
+     * @param maxBytesMemoria Bytes de columnas que la cuenta mantiene en memoria antes de pasar
+     *                        segmentos al disco (sin contar la caché)
+     * @param tamanoCache     Segmentos leídos del disco que se guardan descomprimidos
+     */
+    public AlmacenSegmentos(File archivo, long maxBytesMemoria, int tamanoCache) throws IOException {
+        if (maxBytesMemoria < 0) throw new IllegalArgumentException("La memoria máxima no puede ser negativa");
+        if (tamanoCache < 1) throw new IllegalArgumentException("La caché debe admitir al menos un segmento");
+        this.archivo = archivo;
+        this.maxBytesMemoria = maxBytesMemoria;
+        this.tamanoCache = tamanoCache;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Bloque, Cuenta.Columnas> mayor) {
+                return size() > AlmacenSegmentos.this.tamanoCache;
+            }
+        };
+        canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public long getMaxBytesMemoria() { return maxBytesMemoria; }
+
+    /**
+     * Comprime los n primeros movimientos de las columnas y los añade al archivo.
+     * @return Dónde quedaron, para leerlos con leer()
+     */
+    synchronized Bloque guardar(Cuenta.Columnas columnas, int n) throws IOException {
+        abierto();
+        long inicio = Metricas.SEGMENTOS_GUARDADOS.empezar();
+        int tamano = n * BYTES_MOVIMIENTO;
+        if (crudo.capacity() < tamano) crudo = ByteBuffer.allocate(tamano);
+        crudo.clear();
+        crudo.put(columnas.tipos, 0, n);
+        for (int i = 0; i < n; i++) crudo.putLong(columnas.centimos[i]);
+        // Fechas como diferencia con la anterior: casi todas pequeñas, se comprimen mucho mejor
+        long anterior = 0;
+        for (int i = 0; i < n; i++) {
+            crudo.putLong(columnas.fechas[i] - anterior);
+            anterior = columnas.fechas[i];
+        }
+
+        compresor.reset();
+        compresor.setInput(crudo.array(), 0, tamano);
+        compresor.finish();
+        int longitud = 0;
+        while (!compresor.finished()) {
+            if (longitud == comprimido.length) comprimido = Arrays.copyOf(comprimido, Math.max(4096, longitud * 2));
+            longitud += compresor.deflate(comprimido, longitud, comprimido.length - longitud);
+        }
+
+        ByteBuffer salida = ByteBuffer.wrap(comprimido, 0, longitud);
+        while (salida.hasRemaining()) canal.write(salida, fin + salida.position());
+        Bloque bloque = new Bloque(fin, longitud, n, columnas.fechas[0]);
+        fin += longitud;
+        Metricas.SEGMENTOS_GUARDADOS.terminar(inicio, n, longitud);
+        return bloque;
+    }
+
+    /**
+     * Devuelve las columnas de un segmento guardado, de la caché o leyéndolas del archivo.
+     * No deben modificarse: otros hilos pueden estar leyéndolas.
+     * @param tamano Posiciones de las columnas (las del segmento en la cuenta)
+     */
+    synchronized Cuenta.Columnas leer(Bloque bloque, int tamano) throws IOException {
+        abierto();
+        Cuenta.Columnas columnas = cache.get(bloque);
+        if (columnas != null) return columnas;
+
+        long inicio = Metricas.SEGMENTOS_LEIDOS.empezar();
+        if (comprimido.length < bloque.longitud) comprimido = new byte[bloque.longitud];
+        ByteBuffer entrada = ByteBuffer.wrap(comprimido, 0, bloque.longitud);
+        while (entrada.hasRemaining()) {
+            if (canal.read(entrada, bloque.posicion + entrada.position()) < 0) {
+                throw new IOException("Archivo de segmentos truncado");
+            }
+        }
+
+        int esperado = bloque.filas * BYTES_MOVIMIENTO;
+        if (crudo.capacity() < esperado) crudo = ByteBuffer.allocate(esperado);
+        descompresor.reset();
+        descompresor.setInput(comprimido, 0, bloque.longitud);
+        try {
+            int leidos = 0;
+            while (leidos < esperado && !descompresor.finished()) {
+                int n = descompresor.inflate(crudo.array(), leidos, esperado - leidos);
+                if (n == 0 && (descompresor.needsInput() || descompresor.needsDictionary())) break;
+                leidos += n;
+            }
+            if (leidos != esperado) throw new IOException("Archivo de segmentos dañado: segmento incompleto");
+        } catch (DataFormatException e) {
+            throw new IOException("Archivo de segmentos dañado: " + e.getMessage(), e);
+        }
+
+        columnas = new Cuenta.Columnas(tamano);
+        crudo.clear();
+        crudo.get(columnas.tipos, 0, bloque.filas);
+        for (int i = 0; i < bloque.filas; i++) columnas.centimos[i] = crudo.getLong();
+        long fecha = 0;
+        for (int i = 0; i < bloque.filas; i++) {
+            fecha += crudo.getLong();
+            columnas.fechas[i] = fecha;
+        }
+        cache.put(bloque, columnas);
+        Metricas.SEGMENTOS_LEIDOS.terminar(inicio, bloque.filas, bloque.longitud);
+        return columnas;
+    }
+
+    // El compresor y el descompresor ya no se pueden usar después de close()
+    private void abierto() throws IOException {
+        if (!canal.isOpen()) throw new IOException("El almacén de segmentos está cerrado");
+    }
+
+    /**
+     * Bytes que ocupan en disco los segmentos guardados.
+     */
+    public synchronized long getBytesEnDisco() { return fin; }
+
+    /**
+     * Cierra y borra el archivo de segmentos. La cuenta ya no puede leer los segmentos que tenía aquí.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        cache.clear();
+        compresor.end();
+        descompresor.end();
+        try {
+            canal.close();
+        } finally {
+            if (archivo.exists() && !archivo.delete()) {
+                System.out.println("Aviso: no se pudo borrar '" + archivo.getPath() + "'");
+            }
+        }
+    }
+}
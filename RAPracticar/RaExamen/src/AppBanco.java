@@ -1,10 +1,19 @@
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import javax.management.JMException;
 
 /**
  * Clase principal de la aplicación bancaria.
@@ -16,12 +25,50 @@ public class AppBanco {
     // Carpeta donde se almacenarán los datos de la cuenta
     private static final String CARPETA_DATOS = "datos";
 
-    // Nombre del fichero donde se guarda la cuenta serializada
+    // Nombre del fichero donde se guarda la cuenta (formato binario)
     private static final String FICHERO_CUENTA = "cuenta.dat";
 
+    // Nombre del fichero del diario con los movimientos posteriores a la última copia
+    private static final String FICHERO_DIARIO = "cuenta.diario";
+
+    // Fichero donde pasan los movimientos antiguos cuando no caben en memoria, y cuántos bytes de
+    // movimientos se mantienen en memoria (-Dcuenta.memoriaMaxima=...; 0 para no limitarla)
+    private static final String FICHERO_SEGMENTOS = "cuenta.segmentos";
+    private static final long MEMORIA_MAXIMA_CUENTA =
+            Long.getLong("cuenta.memoriaMaxima", AlmacenSegmentos.MAX_BYTES_MEMORIA);
+
+    // Umbrales de los puntos de control en segundo plano (se pueden cambiar al arrancar con
+    // -DpuntoControl.movimientos=..., -DpuntoControl.bytes=... y -DpuntoControl.maxReproduccion=...)
+    private static final long PUNTO_CONTROL_MOVIMIENTOS =
+            Long.getLong("puntoControl.movimientos", PuntosDeControl.UMBRAL_MOVIMIENTOS);
+    private static final long PUNTO_CONTROL_BYTES =
+            Long.getLong("puntoControl.bytes", PuntosDeControl.UMBRAL_BYTES);
+    private static final long PUNTO_CONTROL_MAX_REPRODUCCION =
+            Long.getLong("puntoControl.maxReproduccion", PuntosDeControl.MAX_REPRODUCCION);
+
+    // Cuándo llegan al disco los movimientos del diario, que se escriben en segundo plano
+    // (-Ddiario.durabilidad=operacion, =<N>ms o =<N>op; ver EscritorDiario.Durabilidad)
+    private static final String DURABILIDAD_DIARIO = System.getProperty("diario.durabilidad", "operacion");
+
+    // Fichero donde se añade periódicamente el informe de métricas, y cada cuántos segundos
+    private static final String FICHERO_METRICAS = "metricas.log";
+    private static final long PERIODO_METRICAS = 60;
+
     // Scanner global para leer entradas por consola
     private final Scanner sc = new Scanner(System.in);
 
+    // Exportaciones en segundo plano (hilos virtuales), para no bloquear el menú
+    private final ServicioExportacion exportaciones = new ServicioExportacion();
+
+    // Movimientos por página al consultar (se puede cambiar desde la consulta)
+    private static final int TAM_PAGINA_POR_DEFECTO = 20;
+    private int tamPagina = TAM_PAGINA_POR_DEFECTO;
+
+    // Salida con búfer para la consulta: cada página se compone entera y se escribe de una vez
+    private final PrintWriter salida = new PrintWriter(
+            new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset())), false);
+    private final FormateadorTexto pagina = new FormateadorTexto();
+
     /**
      * Método principal de ejecución de la aplicación.
      * Carga la cuenta si existe, o la crea nueva, y muestra el menú principal.
@@ -34,18 +81,39 @@ public class AppBanco {
             return;
         }
 
+        // Métricas de rendimiento: por JMX y en un informe periódico
+        File archivoMetricas = new File(dir, FICHERO_METRICAS);
+        try {
+            Metricas.registrarMBean();
+        } catch (JMException e) {
+            System.out.println("Aviso: no se pudieron publicar las métricas por JMX: " + e.getMessage());
+        }
+        Metricas.iniciarVolcado(archivoMetricas, PERIODO_METRICAS);
+
         // Archivo de la cuenta
         File archivo = new File(dir, FICHERO_CUENTA);
 
         // Intentar cargar cuenta existente
         Cuenta cuenta = archivo.exists() ? cargarCuenta(archivo) : null;
-        if (cuenta == null) {
+        boolean nueva = cuenta == null;
+        if (nueva) {
             System.out.println("No se encontró cuenta válida. Creando nueva...");
             cuenta = crearCuentaPorConsola();
+            // Se guarda ya la copia inicial: el diario solo tiene sentido sobre una copia existente
+            guardarCuenta(archivo, cuenta);
         } else {
             System.out.println("Cuenta cargada desde '" + CARPETA_DATOS + "/" + FICHERO_CUENTA + "'.");
         }
 
+        // Limitar la memoria de los movimientos antes de recuperar los del diario, que pueden ser muchos
+        AlmacenSegmentos almacen = abrirAlmacenSegmentos(new File(dir, FICHERO_SEGMENTOS), cuenta);
+
+        // Abrir el diario y recuperar los movimientos que no llegaron a la copia completa
+        DiarioMovimientos diario = abrirDiario(new File(dir, FICHERO_DIARIO), cuenta, nueva);
+        EscritorDiario escritor = crearEscritorDiario(cuenta, diario);
+        cuenta.setObservador(escritor != null ? escritor : diario);
+        PuntosDeControl puntosDeControl = crearPuntosDeControl(cuenta, archivo, diario);
+
         boolean salir = false;
 
         // ───────────── Menú principal ─────────────
@@ -54,7 +122,8 @@ public class AppBanco {
             System.out.println("1) Ingresar dinero");
             System.out.println("2) Retirar dinero");
             System.out.println("3) Consultar saldo y movimientos");
-            System.out.println("4) Exportar cuenta (CSV, XML, JSON)");
+            System.out.println("4) Exportar cuenta (CSV, XML, JSON, columnar)");
+            System.out.println("5) Importar movimientos (CSV, XML, JSON, columnar)");
             System.out.println("0) Salir y guardar");
             System.out.print("Elige opción: ");
 
@@ -73,19 +142,15 @@ public class AppBanco {
                             ? "Retirada realizada. Saldo: " + String.format("%.2f", cuenta.getSaldo()) + " €"
                             : "Operación no realizada: saldo insuficiente o cantidad inválida.");
                 }
-                case "3" -> { // Consultar saldo y movimientos
-                    System.out.println("\n" + cuenta);
-                    if (cuenta.getMovimientos().isEmpty()) {
-                        System.out.println("No hay movimientos.");
-                    } else {
-                        System.out.println("Movimientos:");
-                        cuenta.getMovimientos().forEach(m -> System.out.println(" - " + m));
-                    }
-                }
-                case "4" -> exportarCuenta(cuenta); // Exportación a CSV, XML y JSON
+                case "3" -> consultarMovimientos(cuenta); // Consultar saldo y movimientos (por páginas)
+                case "4" -> exportarCuenta(cuenta); // Exportación a CSV, XML, JSON y columnar
+                case "5" -> importarMovimientos(cuenta); // Importación desde un archivo exportado
                 case "0" -> { // Guardar y salir
+                    if (escritor != null) escritor.close(); // Lo que quede en su cola pasa al diario
+                    if (puntosDeControl != null) puntosDeControl.close(); // Que no escriba a la vez la copia
                     if (guardarCuenta(archivo, cuenta)) {
                         System.out.println("Cuenta guardada en '" + CARPETA_DATOS + "/" + FICHERO_CUENTA + "'.");
+                        vaciarDiario(diario);
                     } else {
                         System.out.println("Aviso: no se pudo guardar la cuenta.");
                     }
@@ -95,9 +160,56 @@ public class AppBanco {
             }
         }
 
+        exportaciones.close(); // Esperar a que terminen las exportaciones en curso
+        cerrarDiario(diario);
+        cerrarAlmacenSegmentos(almacen); // Ya nadie lee los movimientos
+        volcarMetricas(archivoMetricas);
         sc.close(); // Cerrar Scanner al salir
     }
 
+    // ───────────── Modo por lotes ─────────────
+
+    /**
+     * Aplica sin menú ni preguntas las órdenes de la entrada (ver ModoLotes) sobre la cuenta guardada.
+     * Primero se recupera lo que hubiera en el diario; durante el lote no se escribe en él y la cuenta
+     * se guarda una única vez al final (si el proceso se corta, no queda nada del lote a medias).
+     * @param entrada Órdenes, una por línea
+     * @return Código de salida: 0 si todo fue bien, 1 si alguna orden falló o no se pudo guardar
+     */
+    public int ejecutarLotes(InputStream entrada) {
+        File dir = new File(CARPETA_DATOS);
+        File archivo = new File(dir, FICHERO_CUENTA);
+        Cuenta cuenta = archivo.exists() ? cargarCuenta(archivo) : null;
+        if (cuenta == null) {
+            System.out.println("❌ No hay una cuenta guardada en '" + CARPETA_DATOS + "/" + FICHERO_CUENTA
+                    + "'. Créala primero desde el menú.");
+            return 1;
+        }
+        AlmacenSegmentos almacen = abrirAlmacenSegmentos(new File(dir, FICHERO_SEGMENTOS), cuenta);
+        DiarioMovimientos diario = abrirDiario(new File(dir, FICHERO_DIARIO), cuenta, false);
+
+        ModoLotes lotes = new ModoLotes(cuenta, salida);
+        boolean ok;
+        try {
+            lotes.procesar(entrada);
+            ok = lotes.getErrores() == 0;
+        } catch (IOException e) {
+            System.out.println("❌ Error al leer las órdenes: " + e.getMessage());
+            ok = false;
+        }
+
+        // Se guarda también si hubo errores: las operaciones aplicadas ya son parte de la cuenta
+        if (guardarCuenta(archivo, cuenta)) {
+            vaciarDiario(diario);
+        } else {
+            ok = false;
+        }
+        cerrarDiario(diario);
+        exportaciones.close();
+        cerrarAlmacenSegmentos(almacen);
+        return ok ? 0 : 1;
+    }
+
     // ───────────── Métodos de creación, carga y guardado ─────────────
 
     /**
@@ -117,16 +229,22 @@ public class AppBanco {
     }
 
     /**
-     * Carga la cuenta desde disco usando serialización.
+     * Carga la cuenta desde disco en formato binario.
+     * Si el fichero todavía usa la serialización de Java se migra una única vez al formato nuevo.
      * Maneja errores de lectura y formato.
      * @param archivo Archivo donde está la cuenta
      * @return Cuenta cargada o null si hubo error
      */
     private Cuenta cargarCuenta(File archivo) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(archivo))) {
-            Object obj = ois.readObject();
-            return (Cuenta) obj;
-        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+        try {
+            if (FormatoBinarioCuenta.esFormatoAntiguo(archivo)) {
+                Cuenta cuenta = FormatoBinarioCuenta.migrar(archivo);
+                System.out.println("Cuenta migrada al formato binario (copia del original en '"
+                        + archivo.getName() + ".serializado').");
+                return cuenta;
+            }
+            return FormatoBinarioCuenta.cargar(archivo);
+        } catch (IOException e) {
             System.out.println("Error al cargar cuenta: " + e.getMessage());
             e.printStackTrace();
         }
@@ -134,15 +252,14 @@ public class AppBanco {
     }
 
     /**
-     * Guarda la cuenta en disco usando serialización.
+     * Guarda la cuenta en disco en formato binario.
      * @param archivo Archivo donde se guardará
      * @param cuenta Cuenta a guardar
      * @return true si se guardó correctamente, false si hubo error
      */
     private boolean guardarCuenta(File archivo, Cuenta cuenta) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(archivo))) {
-            oos.writeObject(cuenta);
-            oos.flush();
+        try {
+            FormatoBinarioCuenta.guardar(archivo, cuenta);
             return true;
         } catch (IOException e) {
             System.out.println("Error al guardar la cuenta: " + e.getMessage());
@@ -151,6 +268,133 @@ public class AppBanco {
         return false;
     }
 
+    // ───────────── Almacén de segmentos ─────────────
+
+    /**
+     * Limita la memoria que ocupan los movimientos de la cuenta: los más antiguos pasan comprimidos
+     * a un archivo y se vuelven a leer al consultarlos (ver AlmacenSegmentos).
+     * @return Almacén abierto, o null si no se limita la memoria o no se pudo abrir (la cuenta sigue
+     *         entera en memoria)
+     */
+    private AlmacenSegmentos abrirAlmacenSegmentos(File archivo, Cuenta cuenta) {
+        if (MEMORIA_MAXIMA_CUENTA <= 0) return null;
+        try {
+            AlmacenSegmentos almacen = new AlmacenSegmentos(archivo, MEMORIA_MAXIMA_CUENTA);
+            cuenta.setAlmacenSegmentos(almacen);
+            return almacen;
+        } catch (IOException e) {
+            System.out.println("Aviso: no se pudo abrir el almacén de movimientos: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Cierra y borra el archivo de segmentos al salir.
+     */
+    private void cerrarAlmacenSegmentos(AlmacenSegmentos almacen) {
+        if (almacen == null) return;
+        try {
+            almacen.close();
+        } catch (IOException e) {
+            System.out.println("Aviso: no se pudo cerrar el almacén de movimientos: " + e.getMessage());
+        }
+    }
+
+    // ───────────── Diario de movimientos ─────────────
+
+    /**
+     * Abre el diario de movimientos y reproduce sobre la cuenta lo que no esté en la copia.
+     * Si la cuenta es nueva, el diario se vacía (cualquier contenido previo es de otra cuenta).
+     * @return Diario abierto, o null si no se pudo abrir (la aplicación sigue sin él)
+     */
+    private DiarioMovimientos abrirDiario(File archivoDiario, Cuenta cuenta, boolean nueva) {
+        DiarioMovimientos diario = null;
+        try {
+            diario = new DiarioMovimientos(archivoDiario);
+            if (nueva) {
+                diario.vaciar();
+            } else {
+                int recuperados = diario.reproducir(cuenta);
+                if (recuperados > 0) {
+                    System.out.println("Recuperados " + recuperados + " movimientos del diario.");
+                }
+            }
+            return diario;
+        } catch (IOException e) {
+            System.out.println("Aviso: no se pudo abrir el diario de movimientos: " + e.getMessage());
+            if (diario != null) cerrarDiario(diario);
+            return null;
+        }
+    }
+
+    /**
+     * Crea el escritor que guarda los movimientos en el diario desde otro hilo, con la política
+     * de durabilidad configurada.
+     * @return Escritor, o null si no hay diario o la política no es válida (entonces el diario
+     *         escribe en el hilo de cada operación)
+     */
+    private EscritorDiario crearEscritorDiario(Cuenta cuenta, DiarioMovimientos diario) {
+        if (diario == null) return null;
+        try {
+            return new EscritorDiario(cuenta, diario, EscritorDiario.Durabilidad.desde(DURABILIDAD_DIARIO));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Aviso: " + e.getMessage() + "; el diario se escribirá al operar.");
+            return null;
+        }
+    }
+
+    /**
+     * Crea los puntos de control en segundo plano, que guardan la cuenta y reducen el diario
+     * sin esperar a salir.
+     * @return Puntos de control, o null si no hay diario o los umbrales no son válidos
+     */
+    private PuntosDeControl crearPuntosDeControl(Cuenta cuenta, File archivo, DiarioMovimientos diario) {
+        if (diario == null) return null;
+        try {
+            return new PuntosDeControl(cuenta, archivo, diario,
+                    PUNTO_CONTROL_MOVIMIENTOS, PUNTO_CONTROL_BYTES, PUNTO_CONTROL_MAX_REPRODUCCION);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Aviso: " + e.getMessage() + "; la cuenta solo se guardará al salir.");
+            return null;
+        }
+    }
+
+    /**
+     * Vacía el diario tras guardar una copia completa de la cuenta.
+     */
+    private void vaciarDiario(DiarioMovimientos diario) {
+        if (diario == null) return;
+        try {
+            diario.vaciar();
+        } catch (IOException e) {
+            System.out.println("Aviso: no se pudo vaciar el diario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sincroniza y cierra el diario al salir.
+     */
+    private void cerrarDiario(DiarioMovimientos diario) {
+        if (diario == null) return;
+        try {
+            diario.close();
+        } catch (IOException e) {
+            System.out.println("Aviso: no se pudo cerrar el diario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Añade el informe final de métricas al salir.
+     */
+    private void volcarMetricas(File archivoMetricas) {
+        Metricas.detenerVolcado();
+        try {
+            Metricas.volcar(archivoMetricas);
+        } catch (IOException e) {
+            System.out.println("Aviso: no se pudieron volcar las métricas: " + e.getMessage());
+        }
+    }
+
     // ───────────── Métodos de lectura segura ─────────────
 
     /**
@@ -187,11 +431,123 @@ public class AppBanco {
         }
     }
 
+    /**
+     * Lee una fecha (yyyy-MM-dd) desde consola, controlando errores.
+     * @return La fecha leída, o null si se deja vacío
+     */
+    private LocalDate leerFechaOpcional(String prompt) {
+        while (true) {
+            System.out.print(prompt);
+            String linea = sc.nextLine().trim();
+            if (linea.isEmpty()) return null;
+            try {
+                return LocalDate.parse(linea);
+            } catch (DateTimeParseException e) {
+                System.out.println("Formato no válido. Ejemplo: 2025-10-26");
+            }
+        }
+    }
+
+    // ───────────── Consulta de movimientos ─────────────
+
+    /**
+     * Muestra el saldo y los movimientos por páginas, leyéndolos de la cuenta según se piden.
+     * Permite avanzar, retroceder, saltar a una fecha, cambiar el tamaño de página o ver solo
+     * el resumen con los totales.
+     */
+    private void consultarMovimientos(Cuenta cuenta) {
+        System.out.println("\n" + cuenta);
+        if (cuenta.getNumeroMovimientos() == 0) {
+            System.out.println("No hay movimientos.");
+            return;
+        }
+
+        int inicio = 0;
+        boolean soloResumen = false;
+        while (true) {
+            int n = cuenta.getNumeroMovimientos();
+            if (soloResumen) {
+                componerResumen(cuenta, n);
+            } else {
+                componerPagina(cuenta, inicio, n);
+            }
+            escribirPagina();
+
+            System.out.print("s) Siguiente  a) Anterior  f) Ir a fecha  t) Tamaño de página  r) "
+                    + (soloResumen ? "Ver movimientos" : "Solo resumen") + "  0) Volver: ");
+            switch (sc.nextLine().trim().toLowerCase()) {
+                case "s" -> {
+                    if (inicio + tamPagina < n) inicio += tamPagina;
+                    else System.out.println("Ya estás en la última página.");
+                }
+                case "a" -> {
+                    if (inicio > 0) inicio = Math.max(0, inicio - tamPagina);
+                    else System.out.println("Ya estás en la primera página.");
+                }
+                case "f" -> {
+                    LocalDate dia = leerFechaOpcional("Fecha (yyyy-MM-dd): ");
+                    if (dia != null) {
+                        // Página que empieza en el primer movimiento de ese día (o la última si no hay)
+                        inicio = Math.min(cuenta.indiceDesde(dia.atStartOfDay()), Math.max(0, n - tamPagina));
+                        soloResumen = false;
+                    }
+                }
+                case "t" -> {
+                    int tam = leerEnteroNoNegativo("Movimientos por página: ");
+                    if (tam > 0) tamPagina = tam;
+                    else System.out.println("El tamaño de página debe ser al menos 1.");
+                }
+                case "r" -> soloResumen = !soloResumen;
+                case "0" -> { return; }
+                default -> System.out.println("Opción no válida.");
+            }
+        }
+    }
+
+    /**
+     * Compone la página de movimientos [inicio, inicio + tamPagina) con el mismo formato que
+     * Movimiento.toString(), sin crear objetos por movimiento.
+     */
+    private void componerPagina(Cuenta cuenta, int inicio, int n) {
+        int fin = Math.min(n, inicio + tamPagina);
+        pagina.saltoLinea().texto("Movimientos ").entero(inicio + 1).caracter('-').entero(fin)
+                .texto(" de ").entero(n).texto(":").saltoLinea();
+        for (int i = inicio; i < fin; i++) {
+            pagina.texto(" - [").fecha(cuenta.getFechaMilis(i)).texto("] ")
+                    .texto(cuenta.getTipo(i) == Movimiento.Tipo.INGRESO ? "Ingreso" : "Retirada")
+                    .texto(" -> ").centimos(cuenta.getCentimos(i)).texto(" €").saltoLinea();
+        }
+    }
+
+    /**
+     * Compone el resumen con los totales de la cuenta (sin listar movimientos).
+     */
+    private void componerResumen(Cuenta cuenta, int n) {
+        pagina.saltoLinea().texto("Movimientos: ").entero(n).saltoLinea()
+                .texto("Total ingresado: ").centimos(cuenta.getIngresosCentimos(0, n)).texto(" €").saltoLinea()
+                .texto("Total retirado: ").centimos(cuenta.getRetiradasCentimos(0, n)).texto(" €").saltoLinea()
+                .texto("Saldo: ").centimos(cuenta.getSaldoCentimosHasta(n)).texto(" €").saltoLinea();
+    }
+
+    /**
+     * Escribe la página compuesta en la consola con un único vaciado del búfer.
+     */
+    private void escribirPagina() {
+        try {
+            pagina.volcar(salida);
+        } catch (IOException e) {
+            pagina.descartar();
+            System.out.println("Error al mostrar los movimientos: " + e.getMessage());
+        }
+        salida.flush();
+    }
+
     // ───────────── Exportación ─────────────
 
     /**
-     * Muestra un submenú para exportar la cuenta a CSV, XML o JSON.
-     * Permite elegir múltiples formatos combinados.
+     * Muestra un submenú para exportar la cuenta a CSV, XML, JSON o columnar (binario para análisis).
+     * Permite elegir múltiples formatos combinados, que se exportan en paralelo
+     * en segundo plano mientras el menú sigue disponible.
      */
     private void exportarCuenta(Cuenta cuenta) {
         System.out.print("Nombre base para los archivos de exportación: ");
@@ -205,6 +561,7 @@ public class AppBanco {
         System.out.println("1) CSV");
         System.out.println("2) XML");
         System.out.println("3) JSON");
+        System.out.println("4) Columnar (binario para análisis; no se comprime)");
         System.out.print("Opciones (ejemplo: 1,3): ");
         String opciones = sc.nextLine().trim();
 
@@ -213,37 +570,94 @@ public class AppBanco {
             return;
         }
 
+        // Reunir los formatos elegidos (sin repetir)
         String[] formatos = opciones.split(",");
-        boolean exportado = false;
+        List<Exportador> exportadores = new ArrayList<>();
+        Set<String> elegidos = new HashSet<>();
 
         for (String f : formatos) {
-            switch (f.trim()) {
-                case "1" -> {
-                    if (ExportadorCSV.exportar(cuenta, nombreArchivo)) {
-                        System.out.println("✅ CSV exportado correctamente.");
-                        exportado = true;
-                    }
-                }
-                case "2" -> {
-                    if (ExportadorXML.exportar(cuenta, nombreArchivo)) {
-                        System.out.println("✅ XML exportado correctamente.");
-                        exportado = true;
-                    }
-                }
-                case "3" -> {
-                    if (ExportadorJSON.exportar(cuenta, nombreArchivo)) {
-                        System.out.println("✅ JSON exportado correctamente.");
-                        exportado = true;
-                    }
-                }
+            String opcion = f.trim();
+            if (!elegidos.add(opcion)) continue;
+            switch (opcion) {
+                case "1" -> exportadores.add(new ExportadorCSV());
+                case "2" -> exportadores.add(new ExportadorXML());
+                case "3" -> exportadores.add(new ExportadorJSON());
+                case "4" -> exportadores.add(new ExportadorColumnar());
                 default -> System.out.println("❌ Opción desconocida: " + f);
             }
         }
 
-        if (exportado) {
-            System.out.println("Exportación completada.");
-        } else {
+        if (exportadores.isEmpty()) {
             System.out.println("❌ No se exportó ningún archivo.");
+            return;
+        }
+
+        // Incremental (solo lo nuevo desde la última exportación) o con rango de fechas opcional
+        System.out.print("¿Añadir solo los movimientos nuevos desde la última exportación? (s/n): ");
+        boolean incremental = sc.nextLine().trim().equalsIgnoreCase("s");
+        CompletableFuture<List<ServicioExportacion.Resultado>> exportacion;
+        long inicio;
+        if (incremental) {
+            inicio = System.nanoTime();
+            exportacion = exportaciones.exportarIncremental(cuenta, nombreArchivo, exportadores);
+        } else {
+            // Ambos días incluidos
+            LocalDate primerDia = leerFechaOpcional("Desde (yyyy-MM-dd, vacío = desde el principio): ");
+            LocalDate ultimoDia = leerFechaOpcional("Hasta (yyyy-MM-dd, vacío = hasta hoy): ");
+            LocalDateTime desde = primerDia == null ? null : primerDia.atStartOfDay();
+            LocalDateTime hasta = ultimoDia == null ? null : ultimoDia.plusDays(1).atStartOfDay();
+            System.out.print("¿Comprimir los archivos en gzip (.gz)? (s/n): ");
+            boolean comprimir = sc.nextLine().trim().equalsIgnoreCase("s");
+            boolean mapear = false;
+            if (!comprimir) {
+                // Más rápido con exportaciones muy grandes; siempre en UTF-8
+                System.out.print("¿Escribir directamente con FileChannel (UTF-8, más rápido)? (s/n): ");
+                mapear = sc.nextLine().trim().equalsIgnoreCase("s");
+            }
+            inicio = System.nanoTime();
+            if (comprimir) {
+                exportacion = exportaciones.exportarComprimido(cuenta, nombreArchivo, exportadores, desde, hasta);
+            } else if (mapear) {
+                exportacion = exportaciones.exportarMapeado(cuenta, nombreArchivo, exportadores, desde, hasta);
+            } else {
+                exportacion = exportaciones.exportar(cuenta, nombreArchivo, exportadores, desde, hasta);
+            }
+        }
+
+        System.out.println("Exportación iniciada en segundo plano.");
+        exportacion.thenAccept(resultados -> {
+            boolean exportado = false;
+            for (ServicioExportacion.Resultado r : resultados) {
+                System.out.println(r);
+                exportado |= r.isExito();
+            }
+            System.out.println(exportado
+                    ? "Exportación completada en " + String.format("%.1f", (System.nanoTime() - inicio) / 1_000_000.0) + " ms."
+                    : "❌ No se exportó ningún archivo.");
+        });
+    }
+
+    /**
+     * Importa en la cuenta los movimientos de un archivo exportado (CSV, XML o JSON, también ".gz", o columnar),
+     * conservando sus fechas. El diario los registra por lotes, como el resto de movimientos.
+     */
+    private void importarMovimientos(Cuenta cuenta) {
+        System.out.print("Archivo a importar: ");
+        String ruta = sc.nextLine().trim();
+        if (ruta.isEmpty()) {
+            System.out.println("❌ Ruta inválida, operación cancelada.");
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            int importados = ImportacionMovimientos.importar(new File(ruta), cuenta);
+            System.out.println("✅ " + importados + " movimientos importados en "
+                    + String.format("%.1f", (System.nanoTime() - inicio) / 1_000_000.0) + " ms. Saldo: "
+                    + String.format("%.2f", cuenta.getSaldo()) + " €");
+        } catch (IOException e) {
+            System.out.println("❌ Error al importar: " + e.getMessage());
+            System.out.println("No se ha añadido ningún movimiento del archivo: corrígelo e impórtalo de nuevo.");
         }
     }
 }
@@ -0,0 +1,162 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Registro de cuentas del banco, identificadas por el DNI del titular.
+ * Las cuentas se cargan de disco la primera vez que se usan y cada una tiene su propio fichero.
+ *
+ * La carga, la apertura y el guardado de cada cuenta se protegen con bloqueos por franjas: el DNI
+ * decide qué candado de un conjunto fijo se usa, así que cuentas distintas casi nunca se esperan,
+ * sin necesitar un candado por cuenta. Los ingresos y retiradas no usan candados: Cuenta ya es
+ * segura con varios hilos.
+ */
+public class Banco {
+
+    // Número de franjas de bloqueo (potencia de dos)
+    private static final int FRANJAS = 256;
+
+    // Extensión de los ficheros de cuenta
+    private static final String EXTENSION = ".dat";
+
+    private final File carpeta;
+    private final Map<String, Cuenta> cuentas = new ConcurrentHashMap<>();
+    private final ReentrantLock[] candados = new ReentrantLock[FRANJAS];
+
+    /**
+     * Crea el registro sobre una carpeta con un fichero por cuenta.
+     * @param carpeta Carpeta donde se guardan las cuentas (se crea si no existe)
+     */
+    public Banco(File carpeta) throws IOException {
+        if (!carpeta.exists() && !carpeta.mkdirs()) {
+            throw new IOException("No se pudo crear la carpeta '" + carpeta.getPath() + "'");
+        }
+        this.carpeta = carpeta;
+        for (int i = 0; i < FRANJAS; i++) candados[i] = new ReentrantLock();
+    }
+
+    // ───────────── Acceso a cuentas ─────────────
+
+    /**
+     * Devuelve la cuenta del DNI indicado, cargándola de disco si aún no está en memoria.
+     * @return La cuenta, o null si no existe
+     */
+    public Cuenta obtener(String dni) throws IOException {
+        Cuenta cuenta = cuentas.get(dni);
+        if (cuenta != null) return cuenta;
+
+        ReentrantLock candado = candado(dni);
+        candado.lock();
+        try {
+            cuenta = cuentas.get(dni); // Otro hilo pudo cargarla mientras esperábamos
+            if (cuenta == null) {
+                File archivo = archivo(dni);
+                if (!archivo.exists()) return null;
+                cuenta = FormatoBinarioCuenta.cargar(archivo);
+                cuentas.put(dni, cuenta);
+            }
+            return cuenta;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Abre una cuenta nueva para el cliente y la guarda en disco.
+     * @return La cuenta creada, o null si ya existía una cuenta con ese DNI
+     */
+    public Cuenta abrirCuenta(Cliente cliente) throws IOException {
+        String dni = cliente.getDni();
+        ReentrantLock candado = candado(dni);
+        candado.lock();
+        try {
+            if (cuentas.containsKey(dni) || archivo(dni).exists()) return null;
+            Cuenta cuenta = new Cuenta(cliente);
+            FormatoBinarioCuenta.guardar(archivo(dni), cuenta);
+            cuentas.put(dni, cuenta);
+            return cuenta;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    // ───────────── Operaciones ─────────────
+
+    /**
+     * Ingresa dinero en la cuenta del DNI indicado.
+     * @return true si la cuenta existe y el ingreso es válido
+     */
+    public boolean ingresar(String dni, double cantidad) throws IOException {
+        Cuenta cuenta = obtener(dni);
+        if (cuenta == null || Movimiento.aCentimos(cantidad) <= 0) return false;
+        cuenta.ingresar(cantidad);
+        return true;
+    }
+
+    /**
+     * Retira dinero de la cuenta del DNI indicado si hay saldo suficiente.
+     * @return true si la cuenta existe y la retirada se realiza
+     */
+    public boolean retirar(String dni, double cantidad) throws IOException {
+        Cuenta cuenta = obtener(dni);
+        return cuenta != null && cuenta.retirar(cantidad);
+    }
+
+    // ───────────── Persistencia ─────────────
+
+    /**
+     * Guarda en disco la cuenta del DNI indicado, si está cargada.
+     */
+    public void guardar(String dni) throws IOException {
+        ReentrantLock candado = candado(dni);
+        candado.lock();
+        try {
+            Cuenta cuenta = cuentas.get(dni);
+            if (cuenta != null) FormatoBinarioCuenta.guardar(archivo(dni), cuenta);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Guarda en disco todas las cuentas cargadas.
+     */
+    public void guardarTodas() throws IOException {
+        for (String dni : cuentas.keySet()) guardar(dni);
+    }
+
+    /**
+     * Número de cuentas cargadas en memoria.
+     */
+    public int getCuentasCargadas() { return cuentas.size(); }
+
+    // ───────────── Auxiliares ─────────────
+
+    private ReentrantLock candado(String dni) {
+        int h = dni.hashCode();
+        h ^= (h >>> 16); // Mezcla los bits altos, como HashMap
+        return candados[h & (FRANJAS - 1)];
+    }
+
+    /**
+     * Fichero de la cuenta: el DNI con cualquier carácter que no sea mayúscula, número o '-'
+     * sustituido por '_' y su código en hexadecimal (así dos DNI distintos nunca comparten fichero).
+     * Las minúsculas también se sustituyen porque en Windows y macOS los nombres de fichero no
+     * distinguen mayúsculas: "12345678z" y "12345678Z" irían al mismo fichero. Las mayúsculas se
+     * dejan tal cual para que los ficheros de los DNI habituales no cambien de nombre.
+     */
+    private File archivo(String dni) {
+        StringBuilder nombre = new StringBuilder(dni.length() + EXTENSION.length());
+        for (int i = 0; i < dni.length(); i++) {
+            char c = dni.charAt(i);
+            if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-') {
+                nombre.append(c);
+            } else {
+                nombre.append('_').append(String.format("%04x", (int) c));
+            }
+        }
+        return new File(carpeta, nombre.append(EXTENSION).toString());
+    }
+}
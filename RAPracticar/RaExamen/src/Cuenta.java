@@ -1,21 +1,258 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Representa una cuenta bancaria de un cliente.
  * Contiene un titular (Cliente) y una lista de movimientos (ingresos y retiradas).
  * Implementa Serializable para poder guardarse en disco.
+ *
+ * Los movimientos se guardan por columnas de tipos primitivos (tipo, céntimos y fecha en
+ * milisegundos) en lugar de un objeto Movimiento por fila, para que historiales muy largos
+ * ocupen poca memoria. getMovimientos() sigue ofreciendo una vista de objetos Movimiento.
+ *
+ * Es segura con varios hilos a la vez (cajero, banca online...) y no usa candados:
+ *  - La comprobación de saldo y el cargo son un único compareAndSet sobre el estado
+ *    (saldo en céntimos + movimientos reservados), así que nunca hay descubiertos.
+ *  - Ese mismo compareAndSet reserva la posición del movimiento en el historial, así que el
+ *    historial sigue el mismo orden que el saldo. Cada hilo escribe su movimiento en su
+ *    posición; las columnas están partidas en segmentos que nunca se mueven al crecer.
+ *  - Las lecturas no bloquean a nadie: ven las posiciones [0, getNumeroMovimientos()).
+ *
+ * Los movimientos están en orden cronológico (la fecha de uno nuevo nunca es anterior a la del
+ * último), así que las consultas por fechas usan búsqueda binaria. Cada bloque de BLOQUE
+ * posiciones guarda los ingresos y retiradas acumulados antes de él, para sumar rangos sin
+ * recorrer todo el historial, e IndiceSaldoMinimo guarda el saldo mínimo por bloques para
+ * auditar descubiertos en un rango.
+ *
+ * Una cuenta cargada de disco puede empezar solo con la cabecera (saldo, total ingresado, número
+ * de movimientos y última fecha): el saldo y las operaciones nuevas no necesitan el historial, y
+ * los movimientos guardados se leen por segmentos, en orden, la primera vez que alguien los consulta.
+ *
+ * Con un AlmacenSegmentos (setAlmacenSegmentos) la memoria de los movimientos tiene un límite: cuando
+ * las columnas superan su maxBytesMemoria, los segmentos completos más antiguos se comprimen y pasan
+ * al archivo del almacén, y se vuelven a leer (a través de su caché) al consultarlos. Los movimientos
+ * recientes, los acumulados por bloques y los índices de mínimos siguen siempre en memoria.
  */
 public class Cuenta implements Serializable {
     private static final long serialVersionUID = 1L; // Versión para compatibilidad de serialización
 
-    // Titular de la cuenta
-    private final Cliente titular;
+    // Campos del formato serializado original (titular + ArrayList de Movimiento), para seguir
+    // leyendo y escribiendo los mismos ficheros aunque en memoria se guarden por columnas
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("titular", Cliente.class),
+            new ObjectStreamField("movimientos", ArrayList.class)
+    };
 
-    // Lista de movimientos de la cuenta (INGRESOS y RETIRADAS)
-    private final ArrayList<Movimiento> movimientos;
+    // Tipos de movimiento indexados por ordinal (values() crea una copia en cada llamada)
+    private static final Movimiento.Tipo[] TIPOS = Movimiento.Tipo.values();
+
+    // Tamaño del primer segmento de columnas (cada segmento siguiente dobla al anterior)
+    private static final int BITS_BASE = 4;
+    private static final int BASE = 1 << BITS_BASE;
+
+    // Tamaño máximo de un segmento: a partir de ahí todos miden lo mismo, para que los que pasan
+    // al disco (ver AlmacenSegmentos) sean de tamaño fijo
+    private static final int BITS_MAXIMO = 16;
+    private static final int MAXIMO = 1 << BITS_MAXIMO;
+
+    // Segmentos de tamaño creciente (de BASE a MAXIMO) y posición donde empiezan los de tamaño fijo
+    private static final int CRECIENTES = BITS_MAXIMO - BITS_BASE + 1;
+    private static final int INICIO_FIJOS = (BASE << CRECIENTES) - BASE;
+
+    // Posiciones por bloque de acumulados (los segmentos empiezan siempre en múltiplos de BLOQUE)
+    private static final int BLOQUE = BASE;
+
+    // Número de segmentos necesarios para llegar a Integer.MAX_VALUE movimientos
+    private static final int SEGMENTOS = CRECIENTES + (int) (((long) Integer.MAX_VALUE - INICIO_FIJOS + MAXIMO - 1) >>> BITS_MAXIMO);
+
+    // Los segmentos se guardan en páginas de PAGINA referencias que se crean al necesitarlas, para que
+    // una cuenta con pocos movimientos no reserve el directorio entero
+    private static final int BITS_PAGINA = 8;
+    private static final int PAGINA = 1 << BITS_PAGINA;
+
+    // Fecha que marca una posición reservada pero todavía sin escribir
+    private static final long SIN_ESCRIBIR = Long.MIN_VALUE;
+
+    // Acceso volátil a posiciones de los arrays de fechas (la fecha se escribe la última)
+    private static final VarHandle FECHA = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Resultado de aplicarLote cuando todas las operaciones se han aplicado.
+     */
+    public static final int LOTE_APLICADO = -1;
+
+    // Titular de la cuenta (no es final porque se asigna en readObject)
+    private Cliente titular;
+
+    // Columnas de movimientos, partidas en segmentos (se crean al necesitarlos), por páginas
+    private transient AtomicReferenceArray<AtomicReferenceArray<Segmento>> paginas;
+
+    // Saldo, movimientos reservados y última fecha; se actualiza con un único compareAndSet por operación
+    private transient AtomicReference<Estado> estado;
+
+    // Movimientos ya escritos y visibles para los lectores (las posiciones [0, publicados))
+    private transient volatile int publicados;
+
+    // Indica si algún hilo está publicando movimientos (solo uno a la vez)
+    private transient AtomicBoolean publicando;
+
+    // Saldo tras el último movimiento publicado y mínimos por bloques de los movimientos posteriores
+    // a los que había en disco (solo los toca quien publica)
+    private transient long saldoPublicado;
+    private transient IndiceSaldoMinimo minimos;
+
+    // Movimientos que había en disco al crear la cuenta ([0, enDisco)) y sus mínimos por bloques,
+    // que se van llenando al leerlos
+    private transient int enDisco;
+    private transient IndiceSaldoMinimo minimosDisco;
+
+    // Lectura pendiente de los movimientos en disco, o null si ya están todos en memoria
+    private transient volatile CargaDiferida diferida;
+
+    // Observador que recibe cada movimiento nuevo (por ejemplo, el diario en disco)
+    private transient volatile Observador observador;
+
+    // Nivel en disco de los segmentos antiguos, o null si todo se queda en memoria, y si se le siguen
+    // pasando segmentos (deja de hacerse si falla una escritura; los que ya tiene se siguen leyendo)
+    private transient volatile AlmacenSegmentos almacen;
+    private transient volatile boolean limitarMemoria;
+
+    // Bytes de las columnas que están en memoria (sin contar las de la caché del almacén)
+    private transient AtomicLong bytesEnMemoria;
+
+    // Indica si algún hilo está pasando segmentos al almacén (solo uno a la vez), y el siguiente
+    // segmento que le toca (solo lo toca ese hilo)
+    private transient AtomicBoolean enfriando;
+    private transient int siguienteAEnfriar;
+
+    /**
+     * Recibe los movimientos que se van añadiendo a la cuenta.
+     * Los índices indican el rango [desde, hasta) dentro de getMovimientos().
+     * Se llama en el orden de los movimientos y nunca desde dos hilos a la vez
+     * (puede llamarse desde el hilo de otra operación, que publica varios movimientos juntos).
+     */
+    public interface Observador {
+        void movimientosRegistrados(Cuenta cuenta, int desde, int hasta);
+    }
+
+    /**
+     * Movimientos guardados fuera de memoria (por ejemplo, en el fichero de la cuenta) que se leen al
+     * necesitarlos. Se piden por tramos consecutivos, empezando por el primero, y se cierra al leer el último.
+     */
+    interface OrigenMovimientos extends Closeable {
+        /**
+         * Lee los movimientos [desde, desde + cantidad) en las columnas, a partir de posicion.
+         * @param tipos    Ordinal de Movimiento.Tipo de cada movimiento
+         * @param centimos Cantidad en céntimos de cada movimiento
+         * @param fechas   Fecha/hora en milisegundos de cada movimiento
+         */
+        void leer(int desde, int cantidad, byte[] tipos, long[] centimos, long[] fechas, int posicion)
+                throws IOException;
+    }
+
+    /**
+     * Operación de un lote (ver aplicarLote): tipo de movimiento y cantidad.
+     */
+    public static final class Operacion {
+        private final Movimiento.Tipo tipo;
+        private final double cantidad;
+
+        public Operacion(Movimiento.Tipo tipo, double cantidad) {
+            this.tipo = tipo;
+            this.cantidad = cantidad;
+        }
+
+        public Movimiento.Tipo getTipo() { return tipo; }
+        public double getCantidad() { return cantidad; }
+    }
+
+    /**
+     * Saldo en céntimos, total ingresado, número de movimientos reservados y fecha del último
+     * (inmutable). El total retirado es ingresosCentimos - saldoCentimos.
+     */
+    private static final class Estado {
+        final long saldoCentimos;
+        final long ingresosCentimos;
+        final int reservados;
+        final long ultimaFecha;
+
+        Estado(long saldoCentimos, long ingresosCentimos, int reservados, long ultimaFecha) {
+            this.saldoCentimos = saldoCentimos;
+            this.ingresosCentimos = ingresosCentimos;
+            this.reservados = reservados;
+            this.ultimaFecha = ultimaFecha;
+        }
+    }
+
+    /**
+     * Columnas de un segmento: tipo (ordinal de Movimiento.Tipo), cantidad en céntimos y fecha en
+     * milisegundos de cada posición.
+     */
+    static final class Columnas {
+        final byte[] tipos;
+        final long[] centimos;
+        final long[] fechas;
+
+        Columnas(int tamano) {
+            tipos = new byte[tamano];
+            centimos = new long[tamano];
+            fechas = new long[tamano];
+        }
+    }
+
+    /**
+     * Trozo de los movimientos: sus columnas, o el bloque del almacén donde están si ya pasaron al
+     * disco, y los ingresos y retiradas acumulados antes de cada bloque (siempre en memoria).
+     * Al pasar al disco primero se asigna bloque y después se quitan las columnas, así que quien no
+     * vea las columnas siempre ve el bloque.
+     */
+    private static final class Segmento {
+        final int tamano;
+        volatile Columnas columnas;
+        volatile AlmacenSegmentos.Bloque bloque;
+        final long[] ingresosBloque;
+        final long[] retiradasBloque;
+
+        Segmento(int tamano) {
+            this.tamano = tamano;
+            columnas = new Columnas(tamano);
+            Arrays.fill(columnas.fechas, SIN_ESCRIBIR);
+            ingresosBloque = new long[tamano / BLOQUE];
+            retiradasBloque = new long[tamano / BLOQUE];
+        }
+    }
+
+    /**
+     * Progreso de la lectura de los movimientos en disco. Solo la toca quien tiene su monitor;
+     * cargados es volátil para que los lectores vean sin bloquearse lo que ya está en memoria.
+     */
+    private static final class CargaDiferida {
+        final OrigenMovimientos origen;
+        volatile int cargados;
+        long ingresos;  // Total ingresado en [0, cargados)
+        long retiradas; // Total retirado en [0, cargados)
+
+        CargaDiferida(OrigenMovimientos origen) {
+            this.origen = origen;
+        }
+    }
 
     /**
      * Constructor de la cuenta.
@@ -24,7 +261,44 @@ public class Cuenta implements Serializable {
      */
     public Cuenta(Cliente titular) {
         this.titular = titular;
-        this.movimientos = new ArrayList<>();
+        inicializarColumnas();
+    }
+
+    /**
+     * Crea una cuenta a partir de la cabecera de un fichero, sin leer aún sus movimientos:
+     * se leerán de origen al consultarlos.
+     * @param saldoCentimos    Saldo tras los n movimientos
+     * @param ingresosCentimos Total ingresado en los n movimientos
+     * @param n                Número de movimientos guardados
+     * @param ultimaFecha      Fecha del último movimiento en milisegundos
+     * @param origen           De donde se leen los movimientos (se cierra al terminar de leerlos)
+     */
+    Cuenta(Cliente titular, long saldoCentimos, long ingresosCentimos, int n, long ultimaFecha,
+           OrigenMovimientos origen) {
+        this.titular = titular;
+        inicializarColumnas();
+        if (n == 0) return;
+        estado.set(new Estado(saldoCentimos, ingresosCentimos, n, ultimaFecha));
+        publicados = n;
+        saldoPublicado = saldoCentimos;
+        enDisco = n;
+        minimosDisco = new IndiceSaldoMinimo();
+        diferida = new CargaDiferida(origen);
+    }
+
+    private void inicializarColumnas() {
+        paginas = new AtomicReferenceArray<>((SEGMENTOS + PAGINA - 1) / PAGINA);
+        bytesEnMemoria = new AtomicLong();
+        enfriando = new AtomicBoolean();
+        siguienteAEnfriar = 0;
+        estado = new AtomicReference<>(new Estado(0, 0, 0, Long.MIN_VALUE));
+        publicados = 0;
+        publicando = new AtomicBoolean();
+        saldoPublicado = 0;
+        minimos = new IndiceSaldoMinimo();
+        enDisco = 0;
+        minimosDisco = null;
+        diferida = null;
     }
 
     // ───────────── Getters ─────────────
@@ -34,50 +308,778 @@ public class Cuenta implements Serializable {
     public Cliente getTitular() { return titular; }
 
     /**
-     * Devuelve una lista inmodificable de los movimientos.
-     * Evita que se modifiquen los movimientos desde fuera de la clase.
+     * Devuelve una vista inmodificable de los movimientos.
+     * Los objetos Movimiento se crean al pedirlos, a partir de las columnas.
      */
     public List<Movimiento> getMovimientos() {
-        return Collections.unmodifiableList(movimientos);
+        return new VistaMovimientos();
+    }
+
+    /**
+     * Asigna el observador que será avisado de cada ingreso o retirada.
+     * @param observador Observador a usar, o null para no avisar a nadie
+     */
+    public void setObservador(Observador observador) { this.observador = observador; }
+
+    /**
+     * Asigna el almacén al que pasan los segmentos antiguos cuando las columnas en memoria superan
+     * su límite, y pasa ya los que sobren. Se asigna una sola vez; el almacén debe seguir abierto
+     * mientras se use la cuenta.
+     * @param almacen Almacén de segmentos de esta cuenta
+     */
+    public void setAlmacenSegmentos(AlmacenSegmentos almacen) {
+        if (this.almacen != null) throw new IllegalStateException("La cuenta ya tiene un almacén de segmentos");
+        this.almacen = almacen;
+        limitarMemoria = true;
+        enfriar();
     }
 
     /**
-     * Calcula el saldo actual de la cuenta.
-     * Suma los ingresos y resta las retiradas.
+     * Devuelve los bytes de columnas de movimientos que hay ahora en memoria (sin la caché del almacén).
+     */
+    public long getBytesEnMemoria() { return bytesEnMemoria.get(); }
+
+    /**
+     * Indica si los segmentos antiguos se pasan al almacén. Deja de hacerse si falla una escritura.
+     */
+    public boolean isLimitandoMemoria() { return almacen != null && limitarMemoria; }
+
+    /**
+     * Devuelve el saldo actual de la cuenta.
+     * Se mantiene al día en cada operación, así que no depende del número de movimientos.
      * @return Saldo actual
      */
-    public double getSaldo() {
-        double saldo = 0.0;
-        for (Movimiento m : movimientos) {
-            if (m.getTipo() == Movimiento.Tipo.INGRESO) saldo += m.getCantidad();
-            else saldo -= m.getCantidad();
+    public double getSaldo() { return getSaldoCentimos() / 100.0; }
+
+    /**
+     * Devuelve el saldo actual en céntimos.
+     */
+    public long getSaldoCentimos() { return estado.get().saldoCentimos; }
+
+    /**
+     * Recalcula el saldo recorriendo todos los movimientos publicados.
+     * Suma los ingresos y resta las retiradas, en el mismo orden en que se registraron.
+     * @return Saldo calculado a partir del historial
+     */
+    public double recalcularSaldo() {
+        int n = publicados;
+        asegurarCargados(n);
+        long total = 0;
+        for (int k = 0, inicio = 0; inicio < n; k++) {
+            Segmento s = segmentoEn(k);
+            Columnas c = columnas(s);
+            int fin = Math.min(n - inicio, s.tamano);
+            for (int p = 0; p < fin; p++) {
+                if (c.tipos[p] == Movimiento.Tipo.INGRESO.ordinal()) total += c.centimos[p];
+                else total -= c.centimos[p];
+            }
+            inicio += s.tamano;
+        }
+        return total / 100.0;
+    }
+
+    // ───────────── Acceso por columnas ─────────────
+    // Pensado para recorridos masivos (exportaciones, persistencia) sin crear objetos por fila.
+    // Quien recorra la cuenta mientras otros hilos operan debe leer getNumeroMovimientos() una vez
+    // y no pasar de ahí: esas posiciones ya no cambian.
+
+    /**
+     * Devuelve el número de movimientos publicados de la cuenta.
+     */
+    public int getNumeroMovimientos() { return publicados; }
+
+    /**
+     * Devuelve el número de movimientos reservados: los publicados más los que otros hilos están
+     * escribiendo en este momento. Todos los movimientos ya hechos por quien llama están por debajo.
+     */
+    int getMovimientosReservados() { return estado.get().reservados; }
+
+    /**
+     * Devuelve el tipo del movimiento i.
+     */
+    public Movimiento.Tipo getTipo(int i) {
+        return TIPOS[columnasPublicadas(i).tipos[posicionEn(i)]];
+    }
+
+    /**
+     * Devuelve la cantidad del movimiento i en céntimos.
+     */
+    public long getCentimos(int i) {
+        return columnasPublicadas(i).centimos[posicionEn(i)];
+    }
+
+    /**
+     * Devuelve la fecha/hora del movimiento i en milisegundos (ver Movimiento.aMilis).
+     */
+    public long getFechaMilis(int i) {
+        return columnasPublicadas(i).fechas[posicionEn(i)];
+    }
+
+    /**
+     * Comprueba que el movimiento i está publicado y devuelve las columnas del segmento que lo contiene.
+     */
+    private Columnas columnasPublicadas(int i) {
+        int n = publicados;
+        if (i < 0 || i >= n) {
+            throw new IndexOutOfBoundsException("Movimiento " + i + " fuera de rango (hay " + n + ")");
+        }
+        asegurarCargados(i + 1);
+        return columnas(segmentoEn(segmentoDe(i)));
+    }
+
+    /**
+     * Segmento en el que cae la posición i: hasta INICIO_FIJOS, el segmento k empieza en
+     * (BASE << k) - BASE y tiene BASE << k posiciones; después, todos tienen MAXIMO posiciones.
+     */
+    private static int segmentoDe(int i) {
+        if (i >= INICIO_FIJOS) return CRECIENTES + ((i - INICIO_FIJOS) >>> BITS_MAXIMO);
+        return (31 - Integer.numberOfLeadingZeros(i + BASE)) - BITS_BASE;
+    }
+
+    /**
+     * Posición de i dentro de su segmento.
+     */
+    private static int posicionEn(int i) {
+        if (i >= INICIO_FIJOS) return (i - INICIO_FIJOS) & (MAXIMO - 1);
+        int j = i + BASE;
+        return j - Integer.highestOneBit(j);
+    }
+
+    /**
+     * Primera posición del segmento k.
+     */
+    private static long inicioDe(int k) {
+        if (k >= CRECIENTES) return INICIO_FIJOS + ((long) (k - CRECIENTES) << BITS_MAXIMO);
+        return (BASE << k) - BASE;
+    }
+
+    /**
+     * Número de posiciones del segmento k.
+     */
+    private static int tamanoDe(int k) {
+        return k >= CRECIENTES ? MAXIMO : BASE << k;
+    }
+
+    /**
+     * Devuelve el segmento k, o null si aún no existe.
+     */
+    private Segmento segmentoEn(int k) {
+        AtomicReferenceArray<Segmento> pagina = paginas.get(k >>> BITS_PAGINA);
+        return pagina == null ? null : pagina.get(k & (PAGINA - 1));
+    }
+
+    /**
+     * Devuelve el segmento k, creándolo si aún no existe (si dos hilos lo crean a la vez, gana uno).
+     */
+    private Segmento segmento(int k) {
+        AtomicReferenceArray<Segmento> pagina = paginas.get(k >>> BITS_PAGINA);
+        if (pagina == null) {
+            AtomicReferenceArray<Segmento> nueva = new AtomicReferenceArray<>(PAGINA);
+            pagina = paginas.compareAndExchange(k >>> BITS_PAGINA, null, nueva);
+            if (pagina == null) pagina = nueva;
+        }
+        Segmento s = pagina.get(k & (PAGINA - 1));
+        if (s == null) {
+            Segmento nuevo = new Segmento(tamanoDe(k));
+            s = pagina.compareAndExchange(k & (PAGINA - 1), null, nuevo);
+            if (s == null) {
+                s = nuevo;
+                bytesEnMemoria.addAndGet((long) nuevo.tamano * AlmacenSegmentos.BYTES_MOVIMIENTO);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Devuelve las columnas de un segmento: las suyas si están en memoria o, si ya pasaron al disco,
+     * las del almacén (de su caché o leídas del archivo).
+     */
+    private Columnas columnas(Segmento s) {
+        Columnas c = s.columnas;
+        if (c != null) return c;
+        try {
+            return almacen.leer(s.bloque, s.tamano);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron leer los movimientos de la cuenta: " + e.getMessage(), e);
+        }
+    }
+
+    // ───────────── Almacenamiento por niveles ─────────────
+
+    /**
+     * Si las columnas en memoria superan el límite del almacén, pasa a él los segmentos completos más
+     * antiguos (todas sus posiciones publicadas y, si venían del disco, ya leídas) hasta quedar por
+     * debajo. Solo un hilo lo hace cada vez; si otro ya está en ello, este se va sin esperar.
+     */
+    private void enfriar() {
+        AlmacenSegmentos a = almacen;
+        if (a == null || !limitarMemoria || bytesEnMemoria.get() <= a.getMaxBytesMemoria()) return;
+        if (!enfriando.compareAndSet(false, true)) return;
+        try {
+            while (bytesEnMemoria.get() > a.getMaxBytesMemoria()) {
+                int k = siguienteAEnfriar;
+                long fin = inicioDe(k) + tamanoDe(k);
+                CargaDiferida d = diferida;
+                if (fin > publicados || (d != null && d.cargados < Math.min(fin, enDisco))) return;
+                Segmento s = segmentoEn(k);
+                s.bloque = a.guardar(s.columnas, s.tamano);
+                s.columnas = null;
+                bytesEnMemoria.addAndGet(-(long) s.tamano * AlmacenSegmentos.BYTES_MOVIMIENTO);
+                siguienteAEnfriar = k + 1;
+            }
+        } catch (IOException e) {
+            // No se vuelve a intentar en cada movimiento: se sigue sin límite de memoria y los
+            // movimientos nuevos se quedan en memoria (el fallo queda contado en las métricas)
+            limitarMemoria = false;
+            Metricas.FALLOS_SEGMENTOS.terminar(0);
+            System.out.println("Aviso: no se pudieron pasar movimientos al disco: " + e.getMessage());
+        } finally {
+            enfriando.set(false);
+        }
+    }
+
+    // ───────────── Consultas por fechas ─────────────
+    // Los rangos son [desde, hasta): desde incluido y hasta excluido; null significa sin límite.
+
+    /**
+     * Devuelve la posición del primer movimiento con fecha igual o posterior a la indicada
+     * (o getNumeroMovimientos() si no hay ninguno). Búsqueda binaria: O(log n).
+     * @param fecha Fecha a buscar, o null para la posición 0
+     */
+    public int indiceDesde(LocalDateTime fecha) {
+        if (fecha == null) return 0;
+        return indiceDesde(Movimiento.aMilis(fecha), publicados);
+    }
+
+    /**
+     * Primero se busca el segmento por la fecha de su primer movimiento (que se conoce aunque el
+     * segmento esté en el almacén) y después la posición dentro de él, así que solo se leen las
+     * columnas de un segmento.
+     */
+    private int indiceDesde(long milis, int n) {
+        asegurarCargados(n);
+        if (n == 0) return 0;
+        // Último segmento cuyo primer movimiento es anterior a milis (si no hay, la respuesta es 0)
+        int bajo = 0, alto = segmentoDe(n - 1) + 1;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (primeraFecha(segmentoEn(medio)) < milis) bajo = medio + 1;
+            else alto = medio;
+        }
+        if (bajo == 0) return 0;
+        int k = bajo - 1;
+        Columnas c = columnas(segmentoEn(k));
+        int inicio = (int) inicioDe(k);
+        int posBajo = 1, posAlto = Math.min(tamanoDe(k), n - inicio); // La posición 0 ya es anterior
+        while (posBajo < posAlto) {
+            int medio = (posBajo + posAlto) >>> 1;
+            if (c.fechas[medio] < milis) posBajo = medio + 1;
+            else posAlto = medio;
+        }
+        return inicio + posBajo;
+    }
+
+    /**
+     * Fecha del primer movimiento (publicado) de un segmento, sin leerlo del almacén.
+     */
+    private static long primeraFecha(Segmento s) {
+        Columnas c = s.columnas;
+        return c != null ? c.fechas[0] : s.bloque.primeraFecha;
+    }
+
+    /**
+     * Devuelve una vista (sin copiar nada) de los movimientos con fecha en [desde, hasta).
+     * @param desde Fecha inicial incluida, o null
+     * @param hasta Fecha final excluida, o null
+     */
+    public List<Movimiento> getMovimientosEntre(LocalDateTime desde, LocalDateTime hasta) {
+        int[] rango = rango(desde, hasta);
+        return getMovimientos().subList(rango[0], rango[1]);
+    }
+
+    /**
+     * Devuelve la posición inicial (incluida) y final (excluida) de los movimientos con fecha
+     * en [desde, hasta).
+     */
+    public int[] rango(LocalDateTime desde, LocalDateTime hasta) {
+        return rango(desde, hasta, publicados);
+    }
+
+    /**
+     * Como rango(desde, hasta), pero solo entre los n primeros movimientos (los que tenía la cuenta
+     * en un momento dado: los siguientes no se tienen en cuenta aunque ya existan).
+     */
+    public int[] rango(LocalDateTime desde, LocalDateTime hasta, int n) {
+        if (n < 0 || n > publicados) {
+            throw new IndexOutOfBoundsException("Movimientos " + n + " fuera de rango (hay " + publicados + ")");
+        }
+        int i = desde == null ? 0 : indiceDesde(Movimiento.aMilis(desde), n);
+        int j = hasta == null ? n : indiceDesde(Movimiento.aMilis(hasta), n);
+        return new int[] { i, Math.max(i, j) };
+    }
+
+    /**
+     * Total ingresado con fecha en [desde, hasta). O(log n).
+     */
+    public double getIngresosEntre(LocalDateTime desde, LocalDateTime hasta) {
+        int[] rango = rango(desde, hasta);
+        return getIngresosCentimos(rango[0], rango[1]) / 100.0;
+    }
+
+    /**
+     * Total retirado con fecha en [desde, hasta). O(log n).
+     */
+    public double getRetiradasEntre(LocalDateTime desde, LocalDateTime hasta) {
+        int[] rango = rango(desde, hasta);
+        return getRetiradasCentimos(rango[0], rango[1]) / 100.0;
+    }
+
+    /**
+     * Total ingresado, en céntimos, en los movimientos de las posiciones [desde, hasta).
+     */
+    public long getIngresosCentimos(int desde, int hasta) {
+        comprobarRango(desde, hasta);
+        return acumuladoAntesDe(hasta, true) - acumuladoAntesDe(desde, true);
+    }
+
+    /**
+     * Total retirado, en céntimos, en los movimientos de las posiciones [desde, hasta).
+     */
+    public long getRetiradasCentimos(int desde, int hasta) {
+        comprobarRango(desde, hasta);
+        return acumuladoAntesDe(hasta, false) - acumuladoAntesDe(desde, false);
+    }
+
+    private void comprobarRango(int desde, int hasta) {
+        int n = publicados;
+        if (desde < 0 || hasta > n || desde > hasta) {
+            throw new IndexOutOfBoundsException("Rango [" + desde + ", " + hasta + ") fuera de [0, " + n + ")");
         }
-        return saldo;
     }
 
+    /**
+     * Ingresos (o retiradas) acumulados en las posiciones [0, i): el acumulado guardado al inicio
+     * del bloque más los movimientos del bloque hasta i (como mucho BLOQUE - 1).
+     * i debe estar publicado o ser igual al número de publicados.
+     */
+    private long acumuladoAntesDe(int i, boolean ingresos) {
+        if (i == 0) return 0;
+        asegurarCargados(i);
+        int ultimo = i - 1; // Siempre publicado (el bloque de i podría no haber empezado aún)
+        Segmento s = segmentoEn(segmentoDe(ultimo));
+        int p = posicionEn(ultimo);
+        int inicioBloque = p - p % BLOQUE;
+        long total = ingresos ? s.ingresosBloque[p / BLOQUE] : s.retiradasBloque[p / BLOQUE];
+        byte buscado = (byte) (ingresos ? Movimiento.Tipo.INGRESO : Movimiento.Tipo.RETIRADA).ordinal();
+        Columnas c = columnas(s);
+        for (int q = inicioBloque; q <= p; q++) {
+            if (c.tipos[q] == buscado) total += c.centimos[q];
+        }
+        return total;
+    }
+
+    // ───────────── Saldo histórico ─────────────
+
+    /**
+     * Devuelve el saldo que tenía la cuenta en un momento dado (tras todos los movimientos con
+     * fecha igual o anterior). O(log n).
+     * @param fecha Momento a consultar
+     */
+    public double getSaldoEn(LocalDateTime fecha) {
+        int i = indiceDesde(Movimiento.aMilis(fecha) + 1, publicados);
+        return getSaldoCentimosHasta(i) / 100.0;
+    }
+
+    /**
+     * Devuelve el saldo en céntimos tras los movimientos de las posiciones [0, i).
+     */
+    public long getSaldoCentimosHasta(int i) {
+        comprobarRango(0, i);
+        return acumuladoAntesDe(i, true) - acumuladoAntesDe(i, false);
+    }
+
+    /**
+     * Devuelve el saldo mínimo que tuvo la cuenta entre dos fechas: el saldo al empezar el rango
+     * y el que quedó tras cada movimiento con fecha en [desde, hasta). O(log n).
+     * @param desde Fecha inicial incluida, o null
+     * @param hasta Fecha final excluida, o null
+     */
+    public double getSaldoMinimoEntre(LocalDateTime desde, LocalDateTime hasta) {
+        int[] rango = rango(desde, hasta);
+        return getSaldoMinimoCentimos(rango[0], rango[1]) / 100.0;
+    }
+
+    /**
+     * Devuelve el saldo mínimo en céntimos al empezar la posición desde y tras cada movimiento de
+     * [desde, hasta). Los bloques completos se consultan en IndiceSaldoMinimo; solo se recorren
+     * los movimientos sueltos de los extremos (menos de BLOQUE por lado). Los movimientos que había
+     * en disco y los posteriores tienen cada uno su índice, así que el rango se parte en enDisco.
+     */
+    public long getSaldoMinimoCentimos(int desde, int hasta) {
+        comprobarRango(desde, hasta);
+        asegurarCargados(hasta);
+        long saldo = getSaldoCentimosHasta(desde);
+        if (desde >= enDisco) return minimoEn(minimos, enDisco, desde, hasta, saldo);
+        if (hasta <= enDisco) return minimoEn(minimosDisco, 0, desde, hasta, saldo);
+        return Math.min(minimoEn(minimosDisco, 0, desde, enDisco, saldo),
+                minimoEn(minimos, enDisco, enDisco, hasta, getSaldoCentimosHasta(enDisco)));
+    }
+
+    /**
+     * Saldo mínimo de [desde, hasta) con un índice cuyos bloques empiezan en la posición origen.
+     */
+    private long minimoEn(IndiceSaldoMinimo indice, int origen, int desde, int hasta, long saldo) {
+        int primerBloque = (desde - origen + BLOQUE - 1) / BLOQUE;
+        int finBloques = (hasta - origen) / BLOQUE;
+        if (primerBloque >= finBloques) return minimoRecorriendo(desde, hasta, saldo);
+
+        long minimo = minimoRecorriendo(desde, origen + primerBloque * BLOQUE, saldo);
+        minimo = Math.min(minimo, indice.minimo(primerBloque, finBloques));
+        int inicioResto = origen + finBloques * BLOQUE;
+        return Math.min(minimo, minimoRecorriendo(inicioResto, hasta, getSaldoCentimosHasta(inicioResto)));
+    }
+
+    /**
+     * Saldo mínimo partiendo de un saldo inicial y aplicando los movimientos [desde, hasta) uno a uno.
+     */
+    private long minimoRecorriendo(int desde, int hasta, long saldo) {
+        long minimo = saldo;
+        for (int i = desde; i < hasta; i++) {
+            Columnas c = columnas(segmentoEn(segmentoDe(i)));
+            int p = posicionEn(i);
+            saldo += c.tipos[p] == Movimiento.Tipo.INGRESO.ordinal() ? c.centimos[p] : -c.centimos[p];
+            minimo = Math.min(minimo, saldo);
+        }
+        return minimo;
+    }
+
+    // ───────────── Carga diferida ─────────────
+
+    /**
+     * Se asegura de que los movimientos en disco de las posiciones [0, hasta) ya están en memoria.
+     * Cuando ya se han leído todos solo cuesta leer un campo volátil.
+     */
+    private void asegurarCargados(int hasta) {
+        CargaDiferida d = diferida;
+        if (d != null && d.cargados < Math.min(hasta, enDisco)) cargar(d, Math.min(hasta, enDisco));
+    }
+
+    /**
+     * Lee del origen los segmentos que faltan hasta cubrir [0, hasta), en orden, y calcula sus
+     * acumulados por bloque y sus mínimos. Si otro hilo está leyendo, se espera a que termine.
+     * Los movimientos nuevos van siempre detrás de enDisco, así que nunca se pisan con la lectura.
+     */
+    private void cargar(CargaDiferida d, int hasta) {
+        synchronized (d) {
+            try {
+                while (d.cargados < hasta) {
+                    int desde = d.cargados;
+                    int k = segmentoDe(desde);
+                    int fin = (int) Math.min(enDisco, inicioDe(k) + tamanoDe(k)); // Hasta el final del segmento
+                    Segmento s = segmento(k);
+                    Columnas c = s.columnas; // Aún no puede estar en el almacén: no está entero leído
+                    int p = posicionEn(desde);
+                    d.origen.leer(desde, fin - desde, c.tipos, c.centimos, c.fechas, p);
+                    for (int q = p; q < p + fin - desde; q++) {
+                        if (q % BLOQUE == 0) {
+                            s.ingresosBloque[q / BLOQUE] = d.ingresos;
+                            s.retiradasBloque[q / BLOQUE] = d.retiradas;
+                        }
+                        if (c.tipos[q] == Movimiento.Tipo.INGRESO.ordinal()) d.ingresos += c.centimos[q];
+                        else d.retiradas += c.centimos[q];
+                        minimosDisco.anadir(d.ingresos - d.retiradas);
+                    }
+                    d.cargados = fin; // Publica lo leído para los lectores
+                    enfriar(); // Al leer un historial largo, los segmentos leídos van pasando al almacén
+                }
+                if (d.cargados == enDisco && diferida == d) {
+                    diferida = null;
+                    d.origen.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudieron leer los movimientos de la cuenta: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // ───────────── Operaciones ─────────────
+
     /**
      * Realiza un ingreso en la cuenta.
-     * Crea un nuevo movimiento de tipo INGRESO y lo añade a la lista.
-     * @param cantidad Cantidad a ingresar (debe ser positiva)
+     * Añade un nuevo movimiento de tipo INGRESO.
+     * @param cantidad Cantidad a ingresar (debe ser positiva; se redondea a céntimos)
      */
     public void ingresar(double cantidad) {
-        if (cantidad <= 0) return;
-        movimientos.add(new Movimiento(Movimiento.Tipo.INGRESO, cantidad));
+        long inicio = Metricas.INGRESOS.empezar();
+        long c = Movimiento.aCentimos(cantidad);
+        if (c <= 0) return;
+        operar(Movimiento.Tipo.INGRESO, c, Movimiento.ahoraMilis(), true);
+        Metricas.INGRESOS.terminar(inicio);
     }
 
     /**
      * Realiza una retirada de la cuenta si hay saldo suficiente.
-     * Crea un nuevo movimiento de tipo RETIRADA y lo añade a la lista.
-     * @param cantidad Cantidad a retirar
+     * Añade un nuevo movimiento de tipo RETIRADA.
+     * @param cantidad Cantidad a retirar (se redondea a céntimos)
      * @return true si la retirada se realiza, false si no hay suficiente saldo o cantidad inválida
      */
     public boolean retirar(double cantidad) {
-        if (cantidad <= 0) return false;
-        if (getSaldo() < cantidad) return false;
-        movimientos.add(new Movimiento(Movimiento.Tipo.RETIRADA, cantidad));
+        long inicio = Metricas.RETIRADAS.empezar();
+        long c = Movimiento.aCentimos(cantidad);
+        if (c <= 0) return false;
+        boolean hecha = operar(Movimiento.Tipo.RETIRADA, c, Movimiento.ahoraMilis(), true);
+        Metricas.RETIRADAS.terminar(inicio);
+        return hecha;
+    }
+
+    /**
+     * Aplica un lote de operaciones (nóminas, comisiones...) de forma atómica: o se aplican todas
+     * o ninguna. Se validan en una sola pasada contra el saldo que va quedando, se reservan todas las
+     * posiciones con un único compareAndSet y se publican juntas, así que el observador (el diario)
+     * las recibe en una sola llamada. Todas llevan la misma fecha/hora.
+     * @param operaciones Operaciones a aplicar, en orden
+     * @return LOTE_APLICADO si se aplican todas, o la posición de la primera operación rechazada
+     *         (cantidad inválida o retirada sin saldo suficiente); en ese caso no se aplica ninguna
+     */
+    public int aplicarLote(List<Operacion> operaciones) {
+        int k = operaciones.size();
+        if (k == 0) return LOTE_APLICADO;
+        byte[] tipos = new byte[k];
+        long[] centimos = new long[k];
+        for (int j = 0; j < k; j++) {
+            Operacion op = operaciones.get(j);
+            centimos[j] = Movimiento.aCentimos(op.getCantidad());
+            if (op.getTipo() == null || centimos[j] <= 0) return j;
+            tipos[j] = (byte) op.getTipo().ordinal();
+        }
+
+        long ahora = Movimiento.ahoraMilis();
+        Estado actual;
+        long saldo;
+        long ingresos;
+        do {
+            actual = estado.get();
+            if (actual.reservados > Integer.MAX_VALUE - k) {
+                throw new IllegalStateException("La cuenta no admite más movimientos");
+            }
+            saldo = actual.saldoCentimos;
+            ingresos = 0;
+            for (int j = 0; j < k; j++) {
+                if (tipos[j] == Movimiento.Tipo.INGRESO.ordinal()) {
+                    saldo += centimos[j];
+                    ingresos += centimos[j];
+                } else {
+                    if (saldo < centimos[j]) return j;
+                    saldo -= centimos[j];
+                }
+            }
+        } while (!estado.compareAndSet(actual, new Estado(saldo,
+                actual.ingresosCentimos + ingresos, actual.reservados + k, Math.max(ahora, actual.ultimaFecha))));
+
+        escribirLote(actual, tipos, centimos, null, Math.max(ahora, actual.ultimaFecha), k);
+        publicarPendientes();
+        return LOTE_APLICADO;
+    }
+
+    /**
+     * Añade de golpe k movimientos ya existentes (por ejemplo, de una importación) sin comprobar
+     * el saldo y conservando sus fechas. Como en aplicarLote, se reservan con un único
+     * compareAndSet y el observador los recibe en una sola llamada.
+     * @param tipos    Ordinal de Movimiento.Tipo de cada movimiento
+     * @param centimos Cantidad en céntimos de cada movimiento
+     * @param fechas   Fecha/hora original en milisegundos de cada movimiento
+     * @param k        Número de movimientos a añadir (los primeros k de cada array)
+     */
+    void registrarLote(byte[] tipos, long[] centimos, long[] fechas, int k) {
+        if (k == 0) return;
+        long delta = 0;
+        long ingresos = 0;
+        long ultimaFecha = Long.MIN_VALUE;
+        for (int j = 0; j < k; j++) {
+            if (tipos[j] == Movimiento.Tipo.INGRESO.ordinal()) {
+                delta += centimos[j];
+                ingresos += centimos[j];
+            } else {
+                delta -= centimos[j];
+            }
+            ultimaFecha = Math.max(ultimaFecha, fechas[j]);
+        }
+
+        Estado actual;
+        do {
+            actual = estado.get();
+            if (actual.reservados > Integer.MAX_VALUE - k) {
+                throw new IllegalStateException("La cuenta no admite más movimientos");
+            }
+        } while (!estado.compareAndSet(actual, new Estado(actual.saldoCentimos + delta,
+                actual.ingresosCentimos + ingresos, actual.reservados + k, Math.max(ultimaFecha, actual.ultimaFecha))));
+
+        escribirLote(actual, tipos, centimos, fechas, 0, k);
+        publicarPendientes();
+    }
+
+    /**
+     * Escribe un lote en las posiciones reservadas a partir de actual.reservados. Se escriben todas
+     * salvo la primera y la fecha de la primera se escribe al final, así ninguna posición del lote
+     * es publicable hasta que el lote entero está escrito.
+     * @param fechas Fecha de cada movimiento, o null para usar fecha en todos
+     */
+    private void escribirLote(Estado actual, byte[] tipos, long[] centimos, long[] fechas, long fecha, int k) {
+        int primero = actual.reservados;
+        long ingresosAntes = actual.ingresosCentimos;
+        long retiradasAntes = actual.ingresosCentimos - actual.saldoCentimos;
+        for (int j = 0; j < k; j++) {
+            if (j > 0) {
+                escribir(primero + j, tipos[j], centimos[j], fechas == null ? fecha : fechas[j],
+                        ingresosAntes, retiradasAntes);
+            }
+            if (tipos[j] == Movimiento.Tipo.INGRESO.ordinal()) ingresosAntes += centimos[j];
+            else retiradasAntes += centimos[j];
+        }
+        escribir(primero, tipos[0], centimos[0], fechas == null ? fecha : fechas[0], actual.ingresosCentimos,
+                actual.ingresosCentimos - actual.saldoCentimos);
+    }
+
+    /**
+     * Añade un movimiento ya existente (por ejemplo, leído del diario o de un fichero) sin
+     * comprobar el saldo y conservando su fecha original.
+     * @param tipo Tipo del movimiento
+     * @param cantidadCentimos Cantidad en céntimos
+     * @param fechaMilis Fecha/hora original en milisegundos
+     */
+    void registrar(Movimiento.Tipo tipo, long cantidadCentimos, long fechaMilis) {
+        operar(tipo, cantidadCentimos, fechaMilis, false);
+    }
+
+    /**
+     * Aplica un movimiento. Un único compareAndSet sobre el estado comprueba el saldo, lo actualiza
+     * y reserva la posición del movimiento, así que el historial sigue el mismo orden que el saldo.
+     * Después se escribe el movimiento en su posición (sin esperar a nadie) y se publica.
+     * @param nuevo true para movimientos del momento: se comprueba el saldo y la fecha nunca retrocede
+     *              respecto al anterior (por ejemplo, si cambia la hora del sistema)
+     * @return false si es una retirada nueva sin saldo suficiente
+     */
+    private boolean operar(Movimiento.Tipo tipo, long cantidadCentimos, long fechaMilis, boolean nuevo) {
+        boolean ingreso = tipo == Movimiento.Tipo.INGRESO;
+        Estado actual;
+        long fecha;
+        do {
+            actual = estado.get();
+            if (nuevo && !ingreso && actual.saldoCentimos < cantidadCentimos) return false;
+            fecha = nuevo ? Math.max(fechaMilis, actual.ultimaFecha) : fechaMilis;
+        } while (!estado.compareAndSet(actual, new Estado(
+                actual.saldoCentimos + (ingreso ? cantidadCentimos : -cantidadCentimos),
+                actual.ingresosCentimos + (ingreso ? cantidadCentimos : 0),
+                actual.reservados + 1, Math.max(fecha, actual.ultimaFecha))));
+
+        escribir(actual.reservados, (byte) tipo.ordinal(), cantidadCentimos, fecha,
+                actual.ingresosCentimos, actual.ingresosCentimos - actual.saldoCentimos);
+        publicarPendientes();
         return true;
     }
 
+    /**
+     * Escribe un movimiento en su posición reservada. Si empieza un bloque, guarda también los
+     * acumulados anteriores. La fecha se escribe la última y marca la posición como escrita.
+     * @param ingresosAntes  Total ingresado antes de este movimiento
+     * @param retiradasAntes Total retirado antes de este movimiento
+     */
+    private void escribir(int indice, byte tipo, long cantidadCentimos, long fecha,
+                          long ingresosAntes, long retiradasAntes) {
+        Segmento s = segmento(segmentoDe(indice));
+        Columnas c = s.columnas; // No está en el almacén: esta posición aún no está publicada
+        int p = posicionEn(indice);
+        c.tipos[p] = tipo;
+        c.centimos[p] = cantidadCentimos;
+        if (p % BLOQUE == 0) {
+            s.ingresosBloque[p / BLOQUE] = ingresosAntes;
+            s.retiradasBloque[p / BLOQUE] = retiradasAntes;
+        }
+        FECHA.setVolatile(c.fechas, p, fecha);
+    }
+
+    /**
+     * Publica (hace visibles a los lectores) todas las posiciones consecutivas ya escritas y
+     * avisa al observador. Solo un hilo publica cada vez; si otro está publicando, este se va sin
+     * esperar y el otro publicará también su movimiento al volver a comprobar antes de salir.
+     */
+    private void publicarPendientes() {
+        while (true) {
+            if (!publicando.compareAndSet(false, true)) return;
+            int hasta;
+            try {
+                int desde = publicados;
+                hasta = desde;
+                int reservados = estado.get().reservados;
+                while (hasta < reservados && escrito(hasta)) hasta++;
+                if (hasta > desde) {
+                    indexar(desde, hasta);
+                    publicados = hasta;
+                    Observador o = observador;
+                    if (o != null) o.movimientosRegistrados(this, desde, hasta);
+                }
+            } finally {
+                publicando.set(false);
+            }
+            // Si mientras tanto otro hilo escribió la siguiente posición y encontró ocupado, se publica ahora
+            if (hasta >= estado.get().reservados || !escrito(hasta)) {
+                enfriar(); // Con los nuevos publicados puede haberse completado un segmento
+                return;
+            }
+        }
+    }
+
+    /**
+     * Añade al índice de mínimos el saldo tras cada movimiento [desde, hasta) antes de publicarlos.
+     */
+    private void indexar(int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            Columnas c = segmentoEn(segmentoDe(i)).columnas; // Sin publicar: siempre en memoria
+            int p = posicionEn(i);
+            saldoPublicado += c.tipos[p] == Movimiento.Tipo.INGRESO.ordinal() ? c.centimos[p] : -c.centimos[p];
+            minimos.anadir(saldoPublicado);
+        }
+    }
+
+    /**
+     * Indica si la posición reservada i ya tiene su movimiento escrito.
+     */
+    private boolean escrito(int i) {
+        Segmento s = segmentoEn(segmentoDe(i));
+        if (s == null) return false;
+        Columnas c = s.columnas;
+        // Sin columnas: el segmento ya pasó al almacén, así que estaba entero publicado
+        return c == null || (long) FECHA.getVolatile(c.fechas, posicionEn(i)) != SIN_ESCRIBIR;
+    }
+
+    // ───────────── Serialización ─────────────
+
+    /**
+     * Escribe la cuenta con el mismo formato que antes (titular + ArrayList de Movimiento).
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("titular", titular);
+        campos.put("movimientos", new ArrayList<>(getMovimientos()));
+        out.writeFields();
+    }
+
+    /**
+     * Lee la cuenta en el formato serializado original y la pasa a columnas.
+     * El saldo no viene en el fichero, así que se reconstruye una sola vez a partir de los movimientos.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        titular = (Cliente) campos.get("titular", null);
+        List<?> lista = (List<?>) campos.get("movimientos", null);
+        inicializarColumnas();
+        if (lista == null) return;
+        for (Object o : lista) {
+            Movimiento m = (Movimiento) o;
+            registrar(m.getTipo(), Movimiento.aCentimos(m.getCantidad()), Movimiento.aMilis(m.getFechaHora()));
+        }
+    }
+
     /**
      * Representación en texto de la cuenta.
      * Incluye el titular y el saldo actual.
@@ -86,4 +1088,20 @@ public class Cuenta implements Serializable {
     public String toString() {
         return "Cuenta{titular=" + titular + ", saldo=" + String.format("%.2f", getSaldo()) + "€}";
     }
+
+    /**
+     * Vista de solo lectura de los movimientos como objetos Movimiento.
+     * Cada elemento se construye al pedirlo a partir de las columnas; no se guarda nada.
+     */
+    private class VistaMovimientos extends AbstractList<Movimiento> implements RandomAccess {
+        @Override
+        public Movimiento get(int i) {
+            Columnas c = columnasPublicadas(i);
+            int p = posicionEn(i);
+            return new Movimiento(TIPOS[c.tipos[p]], c.centimos[p] / 100.0, Movimiento.desdeMilis(c.fechas[p]));
+        }
+
+        @Override
+        public int size() { return publicados; }
+    }
 }
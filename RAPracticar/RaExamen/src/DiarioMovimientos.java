@@ -0,0 +1,467 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de movimientos de una cuenta (append-only).
+ * Cada ingreso o retirada añade un registro pequeño al final del fichero, así que
+ * guardar una operación cuesta lo mismo sin importar el tamaño del historial.
+ * Al arrancar se carga la última copia completa (cuenta.dat) y se reproduce el diario.
+ *
+ * Formato de cada unidad: primer índice (long), número de registros (int),
+ * los registros (tipo byte, cantidad double, fecha en milisegundos long) y un CRC32 (int).
+ * Una unidad incompleta o con CRC incorrecto (por ejemplo, tras un corte) se descarta.
+ *
+ * Con PuntosDeControl, el diario se parte en segmentos: al empezar un punto de control lo escrito
+ * pasa al archivo ".anterior", que se borra cuando la copia completa nueva ya está guardada.
+ *
+ * Como observador de la cuenta escribe en el hilo que publica y sincroniza por su cuenta (cada
+ * MAX_PENDIENTES unidades o ESPERA_MAX_MS). Con EscritorDiario, en cambio, escribe y sincroniza
+ * en un hilo aparte según la política de durabilidad elegida.
+ *
+ * Si una escritura o un fsync fallan, el diario queda roto: le faltan movimientos y al reproducirlo
+ * no se podría pasar de ellos. Se sigue escribiendo, pero se pide un punto de control (una copia
+ * completa, que ya los incluye) en cada escritura hasta que uno se guarde.
+ */
+public final class DiarioMovimientos implements Cuenta.Observador, AutoCloseable {
+
+    // Tamaño de la cabecera de cada unidad: primer índice + número de registros
+    private static final int CABECERA = Long.BYTES + Integer.BYTES;
+
+    // Tamaño de cada registro: tipo + cantidad + fecha/hora
+    private static final int REGISTRO = 1 + Double.BYTES + Long.BYTES;
+
+    // Se fuerza un fsync al acumular este número de unidades sin sincronizar...
+    private static final int MAX_PENDIENTES = 64;
+
+    // ...o, como mucho, pasado este tiempo desde la primera unidad pendiente
+    private static final long ESPERA_MAX_MS = 100;
+
+    private final File archivo;
+    private final File anterior;
+    private FileChannel canal; // Cambia al empezar un segmento nuevo
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService sincronizador;
+
+    // Búfer reutilizado para escribir las unidades
+    private ByteBuffer buffer = ByteBuffer.allocate(CABECERA + 16 * REGISTRO + Integer.BYTES);
+
+    // Unidades escritas pero todavía no sincronizadas con el disco
+    private int pendientes;
+
+    // Si el propio diario decide cuándo sincronizar (false cuando lo hace EscritorDiario)
+    private boolean sincronizacionPropia = true;
+
+    // Registros del segmento actual y del anterior: los que se reproducirían al arrancar
+    private long registrosSegmento;
+    private long registrosAnterior;
+
+    // Puntos de control en segundo plano (null si no se usan)
+    private PuntosDeControl puntosDeControl;
+
+    // Movimientos que ya están en la última copia guardada por un punto de control (no se escriben)
+    // y si el último punto de control falló
+    private int cubiertos;
+    private boolean ultimoFallido;
+
+    // Movimientos [0, escritos) ya escritos, y hasta dónde puede haber perdidos por un error de
+    // escritura: el diario está roto mientras la última copia no llegue a perdidosHasta
+    private int escritos;
+    private int perdidosHasta;
+
+    /**
+     * Abre (o crea) el diario y arranca la sincronización periódica en segundo plano.
+     * @param archivo Fichero del diario
+     * @throws IOException si no se puede abrir
+     */
+    public DiarioMovimientos(File archivo) throws IOException {
+        this.archivo = archivo;
+        this.anterior = new File(archivo.getPath() + ".anterior");
+        this.canal = abrirCanal();
+        this.sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "diario-fsync");
+            t.setDaemon(true);
+            return t;
+        });
+        sincronizador.scheduleWithFixedDelay(this::sincronizarSilencioso,
+                ESPERA_MAX_MS, ESPERA_MAX_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private FileChannel abrirCanal() throws IOException {
+        FileChannel c = FileChannel.open(archivo.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        c.position(c.size());
+        return c;
+    }
+
+    /**
+     * Asocia los puntos de control que se avisan al superar sus umbrales.
+     */
+    synchronized void setPuntosDeControl(PuntosDeControl puntosDeControl) {
+        this.puntosDeControl = puntosDeControl;
+    }
+
+    /**
+     * Activa o desactiva la sincronización automática (por número de unidades y periódica).
+     * Desactivada, lo escrito solo llega al disco al llamar a sincronizar().
+     */
+    synchronized void setSincronizacionPropia(boolean activa) {
+        this.sincronizacionPropia = activa;
+    }
+
+    // ───────────── Escritura ─────────────
+
+    /**
+     * Escribe en el diario los movimientos [desde, hasta) de la cuenta como una sola unidad.
+     * Los errores se informan por consola para no interrumpir la operación en curso; el diario
+     * queda roto hasta la siguiente copia completa (ver escribir).
+     */
+    @Override
+    public void movimientosRegistrados(Cuenta cuenta, int desde, int hasta) {
+        try {
+            escribir(cuenta, desde, hasta);
+        } catch (IOException e) {
+            System.out.println("Aviso: no se pudo escribir en el diario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe los movimientos [desde, hasta) como una sola unidad (salvo los que ya estén en la
+     * última copia de un punto de control), sin esperar a que lleguen al disco.
+     * Si falla, se quita lo que se llegara a escribir de la unidad, el diario queda roto y se pide
+     * un punto de control.
+     * @return Bytes escritos (0 si no hacía falta escribir nada)
+     * @throws IOException si no se pudo escribir
+     */
+    synchronized int escribir(Cuenta cuenta, int desde, int hasta) throws IOException {
+        if (puntosDeControl != null) desde = esperarLimite(desde, hasta);
+        desde = Math.max(desde, cubiertos);
+        if (desde >= hasta) return 0;
+        long inicio = -1;
+        int bytes;
+        try {
+            inicio = canal.position();
+            bytes = escribirUnidad(cuenta, desde, hasta);
+        } catch (IOException e) {
+            if (inicio >= 0) descartarDesde(inicio);
+            marcarRoto(hasta);
+            throw e;
+        }
+        escritos = Math.max(escritos, hasta);
+        registrosSegmento += hasta - desde;
+        pendientes++;
+        if (sincronizacionPropia && pendientes >= MAX_PENDIENTES) sincronizar();
+        if (puntosDeControl != null && (roto() || puntosDeControl.superaUmbral(registrosSegmento, canal.position()))) {
+            puntosDeControl.solicitar();
+        }
+        return bytes;
+    }
+
+    /**
+     * Quita del final del diario una unidad a medias, para que al reproducir no tape a las siguientes.
+     */
+    private void descartarDesde(long posicion) {
+        try {
+            canal.truncate(posicion);
+            canal.position(posicion);
+        } catch (IOException ignorada) {
+            // Al reproducir se descartará desde ahí, como tras un corte
+        }
+    }
+
+    /**
+     * Anota que los movimientos hasta hasta pueden no estar en el diario y pide una copia completa.
+     */
+    private void marcarRoto(int hasta) {
+        if (!roto()) {
+            System.out.println("Aviso: al diario le faltan movimientos hasta que se guarde una copia completa de la cuenta.");
+        }
+        perdidosHasta = Math.max(perdidosHasta, hasta);
+        if (puntosDeControl != null) puntosDeControl.solicitar();
+    }
+
+    /**
+     * Indica si al diario le faltan movimientos que tampoco están en la última copia completa.
+     */
+    synchronized boolean roto() {
+        return perdidosHasta > cubiertos;
+    }
+
+    /**
+     * Si con los movimientos [desde, hasta) el arranque tendría que reproducir más de lo permitido,
+     * pide un punto de control y espera a que termine (wait() suelta el diario, que el punto de control
+     * necesita). Un punto de control que empieza después ya incluye estos movimientos en la copia, así
+     * que no hace falta escribirlos; mientras se espera pueden publicarse muchos más, y sin esto
+     * llegarían en una sola unidad enorme.
+     * Si el punto de control falla se sigue escribiendo: no se pierden movimientos por respetar el límite.
+     * @return Primer movimiento que aún hay que escribir
+     */
+    private int esperarLimite(int desde, int hasta) {
+        long maximo = puntosDeControl.getMaxReproduccion();
+        boolean esperado = false;
+        boolean interrumpido = false;
+        while (desde < hasta && registrosAnterior + registrosSegmento + (hasta - desde) > maximo) {
+            if (!puntosDeControl.enCurso()) {
+                if (esperado && ultimoFallido) break;
+                if (!puntosDeControl.solicitar()) break; // Ya cerrados
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+            esperado = true;
+            desde = Math.max(desde, cubiertos);
+        }
+        if (interrumpido) Thread.currentThread().interrupt();
+        return desde;
+    }
+
+    private int escribirUnidad(Cuenta cuenta, int desde, int hasta) throws IOException {
+        int n = hasta - desde;
+        int tamano = CABECERA + n * REGISTRO + Integer.BYTES;
+        if (buffer.capacity() < tamano) buffer = ByteBuffer.allocate(tamano);
+
+        buffer.clear();
+        buffer.putLong(desde).putInt(n);
+        for (int i = desde; i < hasta; i++) {
+            buffer.put((byte) cuenta.getTipo(i).ordinal())
+                    .putDouble(cuenta.getCentimos(i) / 100.0)
+                    .putLong(cuenta.getFechaMilis(i));
+        }
+        crc.reset();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        buffer.flip();
+        while (buffer.hasRemaining()) canal.write(buffer);
+        return tamano;
+    }
+
+    /**
+     * Fuerza a disco todas las unidades escritas (un único fsync para todo el grupo).
+     */
+    public synchronized void sincronizar() throws IOException {
+        if (pendientes == 0) return;
+        try {
+            canal.force(false);
+        } catch (IOException e) {
+            marcarRoto(escritos); // No se sabe qué unidades pendientes llegaron al disco
+            throw e;
+        }
+        pendientes = 0;
+    }
+
+    private void sincronizarSilencioso() {
+        try {
+            synchronized (this) {
+                if (sincronizacionPropia) sincronizar();
+            }
+        } catch (IOException e) {
+            System.out.println("Aviso: no se pudo sincronizar el diario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Vacía el diario. Se llama justo después de guardar una copia completa de la cuenta,
+     * que ya incluye todos los movimientos del diario.
+     */
+    public synchronized void vaciar() throws IOException {
+        canal.truncate(0);
+        canal.position(0);
+        canal.force(true);
+        Files.deleteIfExists(anterior.toPath());
+        pendientes = 0;
+        registrosSegmento = 0;
+        registrosAnterior = 0;
+        perdidosHasta = 0; // La copia que se acaba de guardar los tiene todos
+        notifyAll();
+    }
+
+    // ───────────── Puntos de control ─────────────
+
+    /**
+     * Empieza un segmento nuevo para un punto de control: lo escrito hasta ahora pasa al archivo
+     * ".anterior" y las unidades siguientes van a un diario vacío.
+     * @param cuenta Cuenta del diario
+     * @return Movimientos que debe incluir la copia completa: todos los del segmento anterior
+     *         (y quizá alguno más, que también estará en el nuevo y se saltará al reproducir)
+     */
+    synchronized int empezarPuntoControl(Cuenta cuenta) throws IOException {
+        canal.force(false);
+        pendientes = 0;
+        if (anterior.exists()) {
+            // El punto de control anterior no terminó: este segmento se añade detrás del suyo
+            try (FileChannel destino = FileChannel.open(anterior.toPath(),
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long tamano = canal.size();
+                long copiados = 0;
+                while (copiados < tamano) copiados += canal.transferTo(copiados, tamano - copiados, destino);
+                destino.force(false);
+            }
+            canal.truncate(0);
+            canal.position(0);
+            canal.force(true);
+        } else {
+            canal.close();
+            try {
+                Files.move(archivo.toPath(), anterior.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                canal = abrirCanal();
+            }
+        }
+        registrosAnterior += registrosSegmento;
+        registrosSegmento = 0;
+        // Las unidades escritas se publicaron antes de avisar al diario, así que ya están todas en la cuenta
+        return cuenta.getNumeroMovimientos();
+    }
+
+    /**
+     * Termina un punto de control: si la copia completa se guardó, el segmento anterior sobra.
+     * Despierta a quien esté esperando en esperarLimite.
+     * @param guardado true si la copia se guardó
+     * @param n        Movimientos de la copia (los devueltos por empezarPuntoControl)
+     */
+    synchronized void terminarPuntoControl(boolean guardado, int n) throws IOException {
+        ultimoFallido = !guardado;
+        try {
+            if (guardado) {
+                cubiertos = Math.max(cubiertos, n);
+                Files.deleteIfExists(anterior.toPath());
+                registrosAnterior = 0;
+            }
+        } finally {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Registros que se reproducirían al arrancar ahora (segmento anterior y actual).
+     */
+    public synchronized long getRegistros() {
+        return registrosAnterior + registrosSegmento;
+    }
+
+    // ───────────── Lectura ─────────────
+
+    /**
+     * Reproduce sobre la cuenta los movimientos del diario que aún no contiene: primero los del
+     * segmento anterior, si un punto de control no llegó a terminar, y después los del actual.
+     * Las unidades cuyos movimientos ya están en la cuenta (la copia se guardó después) se saltan.
+     * Si el final del diario está incompleto o dañado se descarta a partir de ahí.
+     * @param cuenta Cuenta cargada desde la última copia completa
+     * @return Número de movimientos reproducidos
+     * @throws IOException si no se puede leer, o si el diario tiene un hueco (le faltan movimientos
+     *         entre la cuenta y una unidad válida): se reproduce hasta el hueco y el archivo no se toca
+     */
+    public synchronized int reproducir(Cuenta cuenta) throws IOException {
+        int reproducidos = 0;
+        registrosAnterior = 0;
+        if (anterior.exists()) {
+            // Es de solo lectura: si su final está dañado, esas unidades siguen en el segmento actual
+            try (FileChannel canalAnterior = FileChannel.open(anterior.toPath(), StandardOpenOption.READ)) {
+                Lectura lectura = leerSegmento(canalAnterior, cuenta);
+                comprobarHueco(lectura, anterior, cuenta);
+                reproducidos += lectura.reproducidos;
+                registrosAnterior = lectura.registros;
+            }
+        }
+
+        long tamanoFichero = canal.size();
+        Lectura lectura = leerSegmento(canal, cuenta);
+        comprobarHueco(lectura, archivo, cuenta);
+        reproducidos += lectura.reproducidos;
+        registrosSegmento = lectura.registros;
+        if (lectura.finValido < tamanoFichero) {
+            System.out.println("Aviso: se descarta el final dañado del diario '" + archivo.getName() + "'.");
+            canal.truncate(lectura.finValido);
+        }
+        canal.position(lectura.finValido);
+        return reproducidos;
+    }
+
+    private static final class Lectura {
+        int reproducidos;
+        long registros;  // Registros de las unidades válidas
+        long finValido;  // Fin de la última unidad válida
+        long hueco = -1; // Primer movimiento de la unidad válida que no sigue a la cuenta, o -1
+    }
+
+    /**
+     * Tras un hueco vienen unidades válidas que no se pueden aplicar: no se descartan (ni se trunca el
+     * archivo), se informa del error para que el diario no se use sin revisarlo.
+     */
+    private static void comprobarHueco(Lectura lectura, File segmento, Cuenta cuenta) throws IOException {
+        if (lectura.hueco < 0) return;
+        throw new IOException("Al diario '" + segmento.getName() + "' le faltan los movimientos "
+                + cuenta.getNumeroMovimientos() + " a " + (lectura.hueco - 1)
+                + "; no se reproduce lo posterior y el archivo se deja como está");
+    }
+
+    /**
+     * Lee las unidades válidas de un segmento y registra en la cuenta los movimientos que le faltan.
+     */
+    private Lectura leerSegmento(FileChannel segmento, Cuenta cuenta) throws IOException {
+        ByteBuffer datos = ByteBuffer.allocate((int) segmento.size());
+        while (datos.hasRemaining() && segmento.read(datos, datos.position()) >= 0) {
+            // read puede leer menos de lo pedido
+        }
+        datos.flip();
+
+        Lectura lectura = new Lectura();
+        while (datos.remaining() >= CABECERA) {
+            int inicio = datos.position();
+            long primero = datos.getLong();
+            int n = datos.getInt();
+            if (n <= 0 || datos.remaining() < (long) n * REGISTRO + Integer.BYTES) break;
+
+            crc.reset();
+            crc.update(datos.array(), inicio, CABECERA + n * REGISTRO);
+            datos.position(inicio + CABECERA + n * REGISTRO);
+            if (datos.getInt() != (int) crc.getValue()) break;
+
+            // Un hueco entre la cuenta y el diario significa que falta información: no se sigue
+            if (primero > cuenta.getNumeroMovimientos()) {
+                lectura.hueco = primero;
+                break;
+            }
+
+            datos.position(inicio + CABECERA);
+            Movimiento.Tipo[] tipos = Movimiento.Tipo.values();
+            for (int i = 0; i < n; i++) {
+                Movimiento.Tipo tipo = tipos[datos.get()];
+                long centimos = Movimiento.aCentimos(datos.getDouble());
+                long fecha = datos.getLong();
+                if (primero + i >= cuenta.getNumeroMovimientos()) {
+                    cuenta.registrar(tipo, centimos, fecha);
+                    lectura.reproducidos++;
+                }
+            }
+            datos.getInt(); // CRC ya comprobado
+            lectura.registros += n;
+            lectura.finValido = datos.position();
+        }
+        return lectura;
+    }
+
+    /**
+     * Sincroniza lo pendiente y cierra el diario.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        sincronizador.shutdownNow();
+        try {
+            sincronizar();
+        } finally {
+            canal.close();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistencia en segundo plano de los movimientos de una cuenta (group commit).
+ *
+ * Como observador de la cuenta, solo mete cada rango de movimientos publicados en una cola acotada;
+ * un hilo aparte recoge todo lo que haya en la cola, lo escribe en el diario como una sola unidad y
+ * lo sincroniza con un único fsync, según la política de durabilidad:
+ *  - porOperacion(): tras cada grupo (lo que se juntó mientras se hacía el fsync anterior).
+ *  - cadaMilisegundos(ms): como mucho ms después del primer movimiento sin sincronizar.
+ *  - cadaOperaciones(n): al juntar n movimientos sin sincronizar (y al cerrar).
+ * Así el hilo que opera (el menú) nunca espera a un fsync. Si la cola se llena, quien publica
+ * espera a que haya sitio, lo que pone un límite a lo que se puede perder en un corte.
+ *
+ * Si el hilo se para por un error inesperado, lo que quedaba en la cola se escribe directamente en
+ * el diario, las esperas pendientes fallan con ese error y, como después de close(), los movimientos
+ * siguientes se escriben en el hilo que los publica.
+ *
+ * Quien necesite saber que sus movimientos ya están en disco puede esperar el CompletableFuture
+ * de cuandoDurable(). La latencia de cada commit (desde que el primer movimiento del grupo entró
+ * en la cola hasta que terminó su fsync) se registra en Metricas.COMMITS_DIARIO.
+ */
+public final class EscritorDiario implements Cuenta.Observador, AutoCloseable {
+
+    // Rangos de movimientos que caben en la cola por defecto
+    public static final int CAPACIDAD_COLA = 1024;
+
+    // Con la cola llena, cada cuánto se comprueba si el hilo se ha parado
+    private static final long ESPERA_COLA_MS = 10;
+
+    /**
+     * Cuándo se sincroniza el diario con el disco.
+     */
+    public static final class Durabilidad {
+        private final long nanos;       // Espera máxima desde el primer movimiento sin sincronizar, o -1
+        private final long operaciones; // Movimientos sin sincronizar que fuerzan el fsync
+
+        private Durabilidad(long nanos, long operaciones) {
+            this.nanos = nanos;
+            this.operaciones = operaciones;
+        }
+
+        /**
+         * Cada movimiento llega al disco en el siguiente fsync (los que llegan juntos comparten uno).
+         */
+        public static Durabilidad porOperacion() {
+            return new Durabilidad(-1, 1);
+        }
+
+        /**
+         * Un fsync como mucho cada ms milisegundos, si hay algo pendiente.
+         */
+        public static Durabilidad cadaMilisegundos(long ms) {
+            if (ms <= 0) throw new IllegalArgumentException("El periodo de sincronización debe ser positivo");
+            return new Durabilidad(TimeUnit.MILLISECONDS.toNanos(ms), Long.MAX_VALUE);
+        }
+
+        /**
+         * Un fsync cada n movimientos.
+         */
+        public static Durabilidad cadaOperaciones(long n) {
+            if (n <= 0) throw new IllegalArgumentException("El número de operaciones por fsync debe ser positivo");
+            return new Durabilidad(-1, n);
+        }
+
+        /**
+         * Interpreta una política escrita como "operacion", "100ms" o "64op".
+         */
+        public static Durabilidad desde(String texto) {
+            String t = texto.trim().toLowerCase();
+            try {
+                if (t.equals("operacion")) return porOperacion();
+                if (t.endsWith("ms")) return cadaMilisegundos(Long.parseLong(t.substring(0, t.length() - 2).trim()));
+                if (t.endsWith("op")) return cadaOperaciones(Long.parseLong(t.substring(0, t.length() - 2).trim()));
+            } catch (NumberFormatException e) {
+                // Se informa abajo
+            }
+            throw new IllegalArgumentException("Política de durabilidad no válida: '" + texto
+                    + "' (se admite \"operacion\", \"<N>ms\" o \"<N>op\")");
+        }
+
+        @Override
+        public String toString() {
+            if (nanos >= 0) return TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+            return operaciones == 1 ? "operacion" : operaciones + "op";
+        }
+    }
+
+    /**
+     * Movimientos [desde, hasta) publicados juntos y cuándo entraron en la cola.
+     */
+    private static final class Tramo {
+        final int desde;
+        final int hasta;
+        final long encolado;
+
+        Tramo(int desde, int hasta, long encolado) {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.encolado = encolado;
+        }
+    }
+
+    // Marca en la cola que indica al hilo que termine
+    private static final Tramo FIN = new Tramo(0, 0, 0);
+
+    /**
+     * Espera de cuandoDurable(): se completa cuando los n primeros movimientos están en disco.
+     */
+    private static final class Espera {
+        final int n;
+        final CompletableFuture<Void> hecho = new CompletableFuture<>();
+
+        Espera(int n) {
+            this.n = n;
+        }
+    }
+
+    private final Cuenta cuenta;
+    private final DiarioMovimientos diario;
+    private final Durabilidad durabilidad;
+    private final BlockingQueue<Tramo> cola;
+    private final Thread hilo;
+
+    // Esperas pendientes, la de menos movimientos primero (protegidas por su propio monitor)
+    private final PriorityQueue<Espera> esperas = new PriorityQueue<>(Comparator.comparingInt((Espera e) -> e.n));
+
+    // Movimientos [0, durables) que ya están en disco (en la copia o en el diario sincronizado);
+    // después del constructor solo se toca con el monitor de esperas
+    private int durables;
+
+    // Cerrado: los movimientos siguientes se escriben directamente en el diario
+    private boolean cerrado;
+
+    // Error que paró el hilo antes de cerrarlo, o null
+    private volatile Throwable error;
+
+    // Solo los usa el hilo: movimientos [0, escritos) ya escritos en el diario y
+    // [0, tomados) ya sacados de la cola
+    private int escritos;
+    private int tomados;
+
+    /**
+     * Crea el escritor con la cola por defecto y arranca su hilo.
+     */
+    public EscritorDiario(Cuenta cuenta, DiarioMovimientos diario, Durabilidad durabilidad) {
+        this(cuenta, diario, durabilidad, CAPACIDAD_COLA);
+    }
+
+    /**
+     * Crea el escritor y arranca su hilo. Mientras esté abierto, el diario no sincroniza por su
+     * cuenta. No se asigna como observador: hay que hacer cuenta.setObservador(escritor).
+     * @param cuenta      Cuenta cuyos movimientos se guardan
+     * @param diario      Diario de la cuenta, ya reproducido
+     * @param durabilidad Cuándo se sincroniza con el disco
+     * @param capacidad   Rangos de movimientos que caben en la cola
+     */
+    public EscritorDiario(Cuenta cuenta, DiarioMovimientos diario, Durabilidad durabilidad, int capacidad) {
+        this.cuenta = cuenta;
+        this.diario = diario;
+        this.durabilidad = durabilidad;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.durables = cuenta.getNumeroMovimientos(); // Los que hay ya están en la copia o en el diario
+        this.escritos = durables;
+        this.tomados = durables;
+        diario.setSincronizacionPropia(false);
+        hilo = new Thread(this::escribirEnSegundoPlano, "diario-escritor");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    public Durabilidad getDurabilidad() { return durabilidad; }
+
+    // ───────────── Cola ─────────────
+
+    /**
+     * Mete los movimientos en la cola (si está llena, espera a que haya sitio).
+     */
+    @Override
+    public void movimientosRegistrados(Cuenta cuenta, int desde, int hasta) {
+        synchronized (this) {
+            if (!cerrado && encolar(new Tramo(desde, hasta, System.nanoTime()))) return;
+        }
+        // Cerrado (o el hilo se paró): cuando el hilo haya escrito todo lo de la cola, se escribe aquí mismo
+        esperarHilo();
+        diario.movimientosRegistrados(cuenta, desde, hasta);
+    }
+
+    /**
+     * Mete el tramo en la cola, esperando a que haya sitio mientras el hilo siga en marcha.
+     * @return false si el hilo se ha parado (el tramo no se encola)
+     */
+    private boolean encolar(Tramo tramo) {
+        boolean interrumpido = false;
+        try {
+            while (error == null) {
+                try {
+                    if (cola.offer(tramo, ESPERA_COLA_MS, TimeUnit.MILLISECONDS)) return true;
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+            return false;
+        } finally {
+            if (interrumpido) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Devuelve un CompletableFuture que se completa cuando todos los movimientos hechos hasta ahora
+     * (incluidos los de quien llama) están en disco, o con la excepción si no se pudieron guardar.
+     */
+    public CompletableFuture<Void> cuandoDurable() {
+        int n = cuenta.getMovimientosReservados();
+        synchronized (this) {
+            if (cerrado) { // Ya no hay hilo: se sincroniza aquí
+                esperarHilo();
+                try {
+                    diario.sincronizar();
+                    return CompletableFuture.completedFuture(null);
+                } catch (IOException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+        }
+        synchronized (esperas) {
+            if (n <= durables) return CompletableFuture.completedFuture(null);
+            // El hilo se paró después de comprobar cerrado: ya no completaría la espera
+            if (error != null) return CompletableFuture.failedFuture(error);
+            Espera espera = new Espera(n);
+            esperas.add(espera);
+            return espera.hecho;
+        }
+    }
+
+    // ───────────── Hilo de escritura ─────────────
+
+    private void escribirEnSegundoPlano() {
+        try {
+            escribirCola();
+        } catch (Throwable e) {
+            parar(e);
+        }
+    }
+
+    private void escribirCola() {
+        List<Tramo> lote = new ArrayList<>();
+        long sinSincronizar = 0;   // Movimientos escritos desde el último fsync
+        long bytesSinSincronizar = 0;
+        long primerEncolado = 0;   // Cuándo entró en la cola el primero de ellos
+        boolean fin = false;
+
+        while (!fin) {
+            Tramo tramo;
+            try {
+                if (sinSincronizar > 0 && durabilidad.nanos >= 0) {
+                    long espera = primerEncolado + durabilidad.nanos - System.nanoTime();
+                    tramo = espera > 0 ? cola.poll(espera, TimeUnit.NANOSECONDS) : cola.poll();
+                } else {
+                    tramo = cola.take();
+                }
+            } catch (InterruptedException e) {
+                continue; // Solo termina con FIN, para no dejar nada en la cola
+            }
+
+            // Junta todo lo que haya en la cola: los rangos llegan en orden y seguidos
+            int desde = -1;
+            int hasta = -1;
+            long encolado = 0;
+            if (tramo != null) {
+                lote.add(tramo);
+                cola.drainTo(lote);
+                for (Tramo t : lote) {
+                    if (t == FIN) {
+                        fin = true;
+                        continue;
+                    }
+                    if (desde < 0) {
+                        desde = t.desde;
+                        encolado = t.encolado;
+                    }
+                    hasta = t.hasta;
+                }
+                lote.clear();
+                if (desde >= 0) tomados = hasta;
+            }
+
+            try {
+                if (desde >= 0) {
+                    bytesSinSincronizar += diario.escribir(cuenta, desde, hasta);
+                    if (sinSincronizar == 0) primerEncolado = encolado;
+                    sinSincronizar += hasta - desde;
+                    escritos = hasta;
+                }
+                if (sinSincronizar > 0 && (fin || sinSincronizar >= durabilidad.operaciones
+                        || (durabilidad.nanos >= 0 && System.nanoTime() - primerEncolado >= durabilidad.nanos))) {
+                    diario.sincronizar();
+                    Metricas.COMMITS_DIARIO.terminar(primerEncolado, sinSincronizar, bytesSinSincronizar);
+                    completar(escritos, null);
+                    sinSincronizar = 0;
+                    bytesSinSincronizar = 0;
+                }
+            } catch (IOException e) {
+                System.out.println("Aviso: no se pudo guardar en el diario: " + e.getMessage());
+                completar(Math.max(escritos, hasta), e);
+                escritos = Math.max(escritos, hasta);
+                sinSincronizar = 0;
+                bytesSinSincronizar = 0;
+            }
+        }
+    }
+
+    /**
+     * El hilo se para por un error que no es de escritura: las esperas pendientes fallan con él, lo
+     * que se sacó de la cola sin escribir y lo que queda en ella se escribe directamente, y los
+     * movimientos siguientes se escriben en el hilo que los publica (como después de close()).
+     */
+    private void parar(Throwable e) {
+        System.out.println("Aviso: el escritor del diario se ha parado: " + e);
+        error = e;
+        // Quien espera sitio en la cola ve el error y suelta el monitor (ver encolar); después ya no encola nadie
+        synchronized (this) {
+            cerrado = true;
+        }
+        completar(Integer.MAX_VALUE, e);
+        List<Tramo> restantes = new ArrayList<>();
+        cola.drainTo(restantes);
+        for (Tramo t : restantes) {
+            if (t != FIN) tomados = Math.max(tomados, t.hasta);
+        }
+        diario.setSincronizacionPropia(true);
+        try {
+            if (tomados > escritos) diario.movimientosRegistrados(cuenta, escritos, tomados);
+        } catch (RuntimeException ex) { // Probablemente el mismo error: el hilo ya no puede hacer más
+            System.out.println("Aviso: no se pudo guardar en el diario: " + ex);
+        }
+    }
+
+    /**
+     * Completa las esperas de hasta n movimientos: con éxito (y n pasan a ser durables) o con el error.
+     */
+    private void completar(int n, Throwable error) {
+        synchronized (esperas) {
+            if (error == null) durables = n;
+            while (!esperas.isEmpty() && esperas.peek().n <= n) {
+                Espera espera = esperas.poll();
+                if (error == null) espera.hecho.complete(null);
+                else espera.hecho.completeExceptionally(error);
+            }
+        }
+    }
+
+    private void esperarHilo() {
+        boolean interrumpido = false;
+        while (true) {
+            try {
+                hilo.join();
+                break;
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Escribe y sincroniza todo lo que quede en la cola, para el hilo y devuelve al diario su
+     * sincronización automática. Los movimientos que lleguen después se escriben directamente.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!cerrado) {
+                cerrado = true;
+                encolar(FIN); // Si el hilo ya se paró no hace falta
+            }
+        }
+        esperarHilo();
+        diario.setSincronizacionPropia(true);
+    }
+}
@@ -0,0 +1,397 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exporta una cuenta a varios formatos a la vez recorriendo sus movimientos una sola vez.
+ * Cada cantidad y cada fecha se formatea una única vez y el resultado se reparte a todos
+ * los formatos elegidos, así que exportar a CSV, XML y JSON cuesta un solo recorrido.
+ *
+ * Las exportaciones completas guardan una MarcaExportacion junto a cada archivo. Con ella, la
+ * exportación incremental solo reescribe la cola del archivo (el último movimiento y el cierre)
+ * y añade los movimientos nuevos, así que cuesta O(movimientos nuevos). Los añade con la
+ * codificación guardada en la marca, que es con la que se escribió el archivo.
+ *
+ * También se puede exportar comprimido en gzip (".gz"), con los bloques comprimidos en paralelo
+ * por SalidaGzipParalela. Los archivos comprimidos no llevan marca: siempre se escriben enteros.
+ *
+ * Por defecto cada archivo se escribe con un BufferedWriter sobre FileOutputStream (codificación por
+ * defecto). Las exportaciones "mapeadas" usan SalidaMapeada, que codifica en UTF-8 sobre un búfer
+ * directo y lo escribe con FileChannel, y es más rápida con archivos grandes.
+ *
+ * Los formatos binarios (ExportadorBinario, como el columnar) reciben en el mismo recorrido los
+ * movimientos sin formatear y siempre se escriben enteros, sin comprimir ni mapear.
+ */
+public class ExportacionMultiple {
+
+    static final String DIRECTORIO = "exportaciones_banco"; // Carpeta de exportación
+
+    static final String EXTENSION_GZIP = ".gz"; // Se añade a la extensión del formato al comprimir
+
+    private ExportacionMultiple() { }
+
+    /**
+     * Movimiento preparado para exportar: tipo, cantidad y fecha ya formateadas.
+     * Se reutiliza para todas las filas, así que no debe guardarse entre llamadas.
+     */
+    public static final class Fila {
+        private final FormateadorTexto campos = new FormateadorTexto();
+        private Movimiento.Tipo tipo;
+        private long centimos;
+        private long fechaMilis;
+        private int finCantidad;
+        private int finFecha;
+
+        /**
+         * @param formatear false si solo hay formatos binarios (no hace falta formatear los campos)
+         */
+        void cargar(Cuenta cuenta, int i, boolean formatear) {
+            tipo = cuenta.getTipo(i);
+            centimos = cuenta.getCentimos(i);
+            fechaMilis = cuenta.getFechaMilis(i);
+            if (!formatear) return;
+            campos.descartar();
+            campos.centimos(centimos);
+            finCantidad = campos.longitud();
+            campos.fecha(fechaMilis);
+            finFecha = campos.longitud();
+        }
+
+        public Movimiento.Tipo getTipo() { return tipo; }
+
+        public long getCentimos() { return centimos; }
+
+        public long getFechaMilis() { return fechaMilis; }
+
+        /**
+         * Copia la cantidad formateada (como String.format("%.2f", ...)) en la salida.
+         */
+        public void escribirCantidad(FormateadorTexto salida) { salida.texto(campos, 0, finCantidad); }
+
+        /**
+         * Copia la fecha formateada ("yyyy-MM-dd HH:mm:ss") en la salida.
+         */
+        public void escribirFecha(FormateadorTexto salida) { salida.texto(campos, finCantidad, finFecha); }
+    }
+
+    /**
+     * Destino abierto de un formato: su archivo y su búfer de salida.
+     */
+    private static final class Destino {
+        final Exportador exportador;
+        final ExportadorTexto texto; // null si el formato es binario
+        final String ruta;
+        final FormateadorTexto salida = new FormateadorTexto();
+        ContadorBytes contador;
+        SalidaMapeada mapeada; // Solo si se escribe mapeado (entonces writer es esta misma salida)
+        Writer writer;
+        Charset codificacion; // La del writer (UTF-8 si es mapeado)
+        ExportadorBinario.Salida binaria; // Solo en los formatos binarios, hasta cerrarla (entonces no hay writer)
+        boolean fallido;
+
+        // Primer movimiento que hay que escribir en este archivo
+        int desde;
+
+        // Posición en bytes donde empieza la cola (último movimiento y cierre)
+        long inicioCola;
+
+        // Bytes que ya tenía el archivo al abrirlo (para contar solo lo escrito en esta exportación)
+        long posicionInicial;
+
+        Destino(Exportador exportador, String ruta) {
+            this.exportador = exportador;
+            this.texto = exportador instanceof ExportadorTexto t ? t : null;
+            this.ruta = ruta;
+        }
+
+        /**
+         * Abre el archivo para escribir.
+         * @param posicion     Bytes que ya tiene el archivo (0 si se escribe de nuevo)
+         * @param comprimido   true para escribirlo comprimido en gzip
+         * @param mapeado      true para escribirlo con SalidaMapeada (en UTF-8; no se combina con comprimido)
+         * @param codificacion Codificación del texto si no es mapeado (la por defecto, como FileWriter,
+         *                     o la que indica la marca al continuar un archivo)
+         */
+        void abrir(long posicion, boolean comprimido, boolean mapeado, Charset codificacion) throws IOException {
+            posicionInicial = posicion;
+            if (mapeado) {
+                this.codificacion = StandardCharsets.UTF_8;
+                mapeada = new SalidaMapeada(new File(ruta), posicion);
+                writer = mapeada;
+                return;
+            }
+            OutputStream archivo = new FileOutputStream(ruta, posicion > 0);
+            if (comprimido) archivo = new SalidaGzipParalela(archivo);
+            contador = new ContadorBytes(archivo, posicion);
+            this.codificacion = codificacion;
+            writer = new BufferedWriter(new OutputStreamWriter(contador, codificacion));
+        }
+
+        /**
+         * Anota que la cola del archivo empieza en la posición actual.
+         */
+        void marcarCola() throws IOException {
+            writer.flush();
+            inicioCola = mapeada != null ? mapeada.getPosicion() : contador.escritos;
+        }
+    }
+
+    /**
+     * Cuenta los bytes que se escriben en el archivo (para saber dónde empieza la cola).
+     */
+    private static final class ContadorBytes extends FilterOutputStream {
+        long escritos;
+
+        ContadorBytes(OutputStream out, long escritos) {
+            super(out);
+            this.escritos = escritos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            escritos++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            escritos += len;
+        }
+    }
+
+    /**
+     * Exporta la cuenta a todos los formatos indicados en un único recorrido.
+     * Si un formato falla, se informa y se sigue con los demás.
+     *
+     * @param cuenta        La cuenta a exportar
+     * @param nombreArchivo Nombre base de los archivos (sin extensión)
+     * @param exportadores  Formatos a generar
+     * @return Formatos que se exportaron correctamente
+     */
+    public static List<Exportador> exportar(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores) {
+        return exportar(cuenta, nombreArchivo, exportadores, null, null, false, false, false);
+    }
+
+    /**
+     * Exporta solo los movimientos nuevos desde la última exportación completa o incremental.
+     * Si un archivo no tiene marca, o ya no coincide con el archivo o con la cuenta, se exporta entero.
+     *
+     * @return Formatos que se exportaron correctamente (o que ya estaban al día)
+     */
+    public static List<Exportador> exportarIncremental(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores) {
+        return exportar(cuenta, nombreArchivo, exportadores, null, null, true, false, false);
+    }
+
+    /**
+     * Exporta solo los movimientos con fecha en [desde, hasta) (null significa sin límite).
+     * Los extremos del rango se buscan por búsqueda binaria, sin recorrer el resto del historial.
+     *
+     * @param desde Fecha inicial incluida, o null
+     * @param hasta Fecha final excluida, o null
+     * @return Formatos que se exportaron correctamente
+     */
+    public static List<Exportador> exportar(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores,
+                                            LocalDateTime desde, LocalDateTime hasta) {
+        return exportar(cuenta, nombreArchivo, exportadores, desde, hasta, false, false, false);
+    }
+
+    /**
+     * Exporta los movimientos con fecha en [desde, hasta) a archivos comprimidos en gzip
+     * (por ejemplo "nombre.xml.gz"), comprimiendo los bloques en paralelo.
+     *
+     * @param desde Fecha inicial incluida, o null
+     * @param hasta Fecha final excluida, o null
+     * @return Formatos que se exportaron correctamente
+     */
+    public static List<Exportador> exportarComprimido(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores,
+                                                      LocalDateTime desde, LocalDateTime hasta) {
+        return exportar(cuenta, nombreArchivo, exportadores, desde, hasta, false, true, false);
+    }
+
+    /**
+     * Exporta los movimientos con fecha en [desde, hasta) escribiendo cada archivo con SalidaMapeada:
+     * en UTF-8 y directamente con FileChannel, sin Writer intermedio.
+     *
+     * @param desde Fecha inicial incluida, o null
+     * @param hasta Fecha final excluida, o null
+     * @return Formatos que se exportaron correctamente
+     */
+    public static List<Exportador> exportarMapeado(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores,
+                                                   LocalDateTime desde, LocalDateTime hasta) {
+        return exportar(cuenta, nombreArchivo, exportadores, desde, hasta, false, false, true);
+    }
+
+    /**
+     * Ruta del archivo exportado de un formato.
+     */
+    static String ruta(String nombreArchivo, Exportador exportador, boolean comprimido) {
+        return DIRECTORIO + File.separator + nombreArchivo + exportador.getExtension()
+                + (comprimido && exportador instanceof ExportadorTexto ? EXTENSION_GZIP : "");
+    }
+
+    private static List<Exportador> exportar(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores,
+                                             LocalDateTime desde, LocalDateTime hasta,
+                                             boolean incremental, boolean comprimido, boolean mapeado) {
+        return exportar(cuenta, nombreArchivo, exportadores, desde, hasta, cuenta.getNumeroMovimientos(),
+                incremental, comprimido, mapeado);
+    }
+
+    /**
+     * Exporta como los métodos públicos, pero solo entre los primeros movimientos de la cuenta: así
+     * varias exportaciones de una misma petición (ServicioExportacion exporta cada formato por separado)
+     * incluyen exactamente los mismos movimientos aunque la cuenta siga recibiendo otros.
+     * @param movimientos Movimientos que tenía la cuenta al pedir la exportación
+     */
+    static List<Exportador> exportar(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores,
+                                     LocalDateTime desde, LocalDateTime hasta, int movimientos,
+                                     boolean incremental, boolean comprimido, boolean mapeado) {
+        long inicio = System.nanoTime();
+
+        // Crear directorio si no existe
+        File dir = new File(DIRECTORIO);
+        if (!dir.exists()) dir.mkdir();
+
+        int[] rango = cuenta.rango(desde, hasta, movimientos);
+        int n = rango[1];
+        // Solo las exportaciones completas y sin comprimir llevan marca
+        boolean conMarca = desde == null && hasta == null && !comprimido;
+
+        List<Destino> destinos = new ArrayList<>();
+        List<Exportador> exportados = new ArrayList<>();
+        try {
+            int primero = n;
+            boolean formatear = false;
+            for (Exportador e : exportadores) {
+                Destino d = new Destino(e, ruta(nombreArchivo, e, comprimido));
+                File archivo = new File(d.ruta);
+                if (e instanceof ExportadorBinario binario) {
+                    try {
+                        d.binaria = binario.abrir(cuenta, archivo);
+                    } catch (IOException ex) {
+                        fallo(d, ex);
+                    }
+                    d.desde = rango[0];
+                    destinos.add(d);
+                    primero = Math.min(primero, d.desde);
+                    continue;
+                }
+                formatear = true;
+                MarcaExportacion marca = incremental ? MarcaExportacion.leer(archivo, cuenta) : null;
+                // Una exportación posterior pudo dejarlo con más movimientos de los que se piden aquí
+                if (marca != null && marca.getMovimientos() >= n) {
+                    System.out.println("✅ Exportación " + e.getFormato() + " sin movimientos nuevos: " + d.ruta);
+                    exportados.add(e);
+                    continue;
+                }
+                try {
+                    MarcaExportacion.borrar(archivo);
+                    if (marca != null) {
+                        // Se quita la cola (último movimiento y cierre) y se sigue escribiendo desde ahí
+                        truncar(archivo, marca.getInicioCola());
+                        d.abrir(marca.getInicioCola(), false, false, marca.getCodificacion());
+                        d.desde = Math.max(0, marca.getMovimientos() - 1);
+                    } else {
+                        d.abrir(0, comprimido, mapeado, Charset.defaultCharset());
+                        d.desde = rango[0];
+                        d.texto.inicio(cuenta, d.salida);
+                        d.salida.volcar(d.writer);
+                    }
+                } catch (IOException ex) {
+                    fallo(d, ex);
+                }
+                destinos.add(d);
+                primero = Math.min(primero, d.desde);
+            }
+
+            // Único recorrido de los movimientos del rango (desde el primero que le falte a algún archivo)
+            Fila fila = new Fila();
+            for (int i = primero; i < n; i++) {
+                fila.cargar(cuenta, i, formatear);
+                for (Destino d : destinos) {
+                    if (d.fallido || i < d.desde) continue;
+                    try {
+                        if (d.binaria != null) {
+                            d.binaria.movimiento(fila);
+                            continue;
+                        }
+                        if (i == n - 1) d.marcarCola();
+                        d.texto.movimiento(fila, i == n - 1, d.salida);
+                        d.salida.volcar(d.writer);
+                    } catch (IOException ex) {
+                        fallo(d, ex);
+                    }
+                }
+            }
+
+            for (Destino d : destinos) {
+                if (d.fallido) continue;
+                try {
+                    File archivo = new File(d.ruta);
+                    if (d.binaria != null) {
+                        // Se cierra solo aquí: si falla, fallo() borra el archivo a medias
+                        ExportadorBinario.Salida binaria = d.binaria;
+                        d.binaria = null;
+                        binaria.close();
+                    } else {
+                        if (d.desde == n) d.marcarCola(); // Sin movimientos: la cola es solo el cierre
+                        d.texto.fin(cuenta, d.salida);
+                        d.salida.volcar(d.writer);
+                        d.writer.close();
+                        if (conMarca) MarcaExportacion.guardar(archivo, cuenta, n, d.inicioCola, d.codificacion);
+                    }
+                    // Bytes en disco (comprimidos si es .gz) escritos en esta exportación
+                    Metricas.exportacion(d.exportador.getFormato())
+                            .terminar(inicio, n - d.desde, archivo.length() - d.posicionInicial);
+                    System.out.println("✅ Exportación " + d.exportador.getFormato() + " completada: " + d.ruta);
+                    exportados.add(d.exportador);
+                } catch (IOException ex) {
+                    fallo(d, ex);
+                }
+            }
+            return exportados;
+        } finally {
+            for (Destino d : destinos) cerrar(d);
+        }
+    }
+
+    private static void truncar(File archivo, long longitud) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.WRITE)) {
+            canal.truncate(longitud);
+        }
+    }
+
+    private static void fallo(Destino d, IOException e) {
+        d.fallido = true;
+        System.out.println("❌ ERROR al escribir " + d.exportador.getFormato() + ": " + e.getMessage());
+        cerrar(d);
+        // Un archivo binario sin terminar no se puede leer: no se deja a medias
+        File archivo = new File(d.ruta);
+        if (d.texto == null && archivo.isFile() && !archivo.delete()) {
+            System.out.println("Aviso: no se pudo borrar '" + d.ruta + "'");
+        }
+    }
+
+    private static void cerrar(Destino d) {
+        try {
+            if (d.writer != null) d.writer.close();
+            if (d.binaria != null) d.binaria.close();
+        } catch (IOException ignorada) {
+            // Ya se informó del error original (o el archivo ya estaba cerrado)
+        }
+        d.writer = null;
+        d.binaria = null;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Formato de exportación de una cuenta (CSV, XML, JSON, columnar...).
+ * Hay dos clases de formato: los de texto (ExportadorTexto), que reciben cada movimiento ya
+ * formateado, y los binarios (ExportadorBinario), que lo reciben sin formatear. En los dos casos
+ * el recorrido de los movimientos lo hace ExportacionMultiple una sola vez para todos los formatos elegidos.
+ */
+public sealed interface Exportador permits ExportadorTexto, ExportadorBinario {
+
+    /**
+     * Nombre del formato para los mensajes (por ejemplo "CSV").
+     */
+    String getFormato();
+
+    /**
+     * Extensión del archivo, con punto (por ejemplo ".csv").
+     */
+    String getExtension();
+}
@@ -0,0 +1,28 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Formato de exportación binario (por ejemplo ExportadorColumnar).
+ * Recibe los movimientos sin formatear (tipo, céntimos y fecha en milisegundos) y siempre se
+ * escribe entero: no se comprime, no se mapea ni lleva marca.
+ */
+public non-sealed interface ExportadorBinario extends Exportador {
+
+    /**
+     * Crea el archivo y escribe lo que va antes de los movimientos.
+     */
+    Salida abrir(Cuenta cuenta, File archivo) throws IOException;
+
+    /**
+     * Archivo binario abierto. Al cerrarlo se escribe lo que falte y queda completo.
+     */
+    interface Salida extends Closeable {
+
+        /**
+         * Añade un movimiento, en orden cronológico.
+         * @param fila Movimiento sin formatear (solo se usan getTipo, getCentimos y getFechaMilis)
+         */
+        void movimiento(ExportacionMultiple.Fila fila) throws IOException;
+    }
+}
@@ -1,5 +1,3 @@
-import java.io.*;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 /**
@@ -7,10 +5,9 @@ import java.util.List;
  * Se incluyen los movimientos de la cuenta (tipo, cantidad y fecha/hora).
  * Permite analizar o abrir los datos en hojas de cálculo.
  */
-public class ExportadorCSV {
+public class ExportadorCSV implements ExportadorTexto {
 
     private static final String SEPARADOR = ";"; // Separador de columnas CSV
-    private static final String DIRECTORIO = "exportaciones_banco"; // Carpeta de exportación
 
     /**
      * Exporta la cuenta bancaria a un archivo CSV.
@@ -20,6 +17,16 @@ public class ExportadorCSV {
      * @return true si la exportación fue exitosa, false en caso de error
      */
     public static boolean exportar(Cuenta cuenta, String nombreArchivo) {
+        return exportar(cuenta, nombreArchivo, false);
+    }
+
+    /**
+     * Exporta la cuenta a un archivo CSV, opcionalmente comprimido en gzip (".gz").
+     *
+     * @param comprimido true para comprimir el archivo (los bloques se comprimen en paralelo)
+     * @return true si la exportación fue exitosa, false si ocurrió un error
+     */
+    public static boolean exportar(Cuenta cuenta, String nombreArchivo, boolean comprimido) {
         // Validación de parámetros
         if (cuenta == null) {
             System.out.println("❌ ERROR: Cuenta nula, no se puede exportar.");
@@ -31,37 +38,35 @@ public class ExportadorCSV {
             return false;
         }
 
-        // Crear directorio si no existe
-        File dir = new File(DIRECTORIO);
-        if (!dir.exists()) dir.mkdir();
-
-        String rutaCompleta = DIRECTORIO + File.separator + nombreArchivo + ".csv";
+        List<Exportador> formato = List.of(new ExportadorCSV());
+        return !(comprimido
+                ? ExportacionMultiple.exportarComprimido(cuenta, nombreArchivo, formato, null, null)
+                : ExportacionMultiple.exportar(cuenta, nombreArchivo, formato)).isEmpty();
+    }
 
-        // Formato de fecha para los movimientos
-        DateTimeFormatter formatoFecha = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    @Override
+    public String getFormato() { return "CSV"; }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(rutaCompleta))) {
-            // Escribir encabezado del CSV
-            writer.write("Tipo" + SEPARADOR + "Cantidad" + SEPARADOR + "FechaHora");
-            writer.newLine();
+    @Override
+    public String getExtension() { return ".csv"; }
 
-            // Escribir todos los movimientos de la cuenta
-            List<Movimiento> movimientos = cuenta.getMovimientos();
-            for (Movimiento m : movimientos) {
-                writer.write(
-                        m.getTipo() + SEPARADOR +
-                                String.format("%.2f", m.getCantidad()) + SEPARADOR +
-                                m.getFechaHora().format(formatoFecha)
-                );
-                writer.newLine();
-            }
+    @Override
+    public void inicio(Cuenta cuenta, FormateadorTexto salida) {
+        // Encabezado del CSV
+        salida.texto("Tipo" + SEPARADOR + "Cantidad" + SEPARADOR + "FechaHora").saltoLinea();
+    }
 
-            System.out.println("✅ Exportación CSV completada: " + rutaCompleta);
-            return true;
+    @Override
+    public void movimiento(ExportacionMultiple.Fila fila, boolean ultimo, FormateadorTexto salida) {
+        salida.texto(fila.getTipo().name()).texto(SEPARADOR);
+        fila.escribirCantidad(salida);
+        salida.texto(SEPARADOR);
+        fila.escribirFecha(salida);
+        salida.saltoLinea();
+    }
 
-        } catch (IOException e) {
-            System.out.println("❌ ERROR al escribir CSV: " + e.getMessage());
-            return false;
-        }
+    @Override
+    public void fin(Cuenta cuenta, FormateadorTexto salida) {
+        // El CSV no tiene cierre
     }
 }
@@ -0,0 +1,215 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Exporta los movimientos de una cuenta a un archivo binario por columnas (".col") pensado para
+ * análisis: los movimientos se guardan en grupos de FILAS_GRUPO filas y, dentro de cada grupo,
+ * columna a columna, así que un lector no tiene que volver a interpretar fechas ni cantidades en texto.
+ *
+ * Estructura (big-endian):
+ *  - Cabecera: firma "RACC" (int), versión (short), filas por grupo (int), número de grupos (int),
+ *    número de movimientos (long), y nombre y DNI del titular (short de longitud + UTF-8).
+ *  - Cada grupo: número de filas (int), bytes de sus columnas (int) y estadísticas: fecha mínima y
+ *    máxima en milisegundos (long) y total ingresado y retirado en céntimos (long). Con ellas un lector
+ *    puede saltarse los grupos que quedan fuera de un rango de fechas, o sumar sin leer sus columnas
+ *    los que caen dentro (ver ImportadorColumnar.resumir).
+ *  - Columnas del grupo: tipos empaquetados a BITS_TIPO bits por fila; fechas como varint zigzag de
+ *    la primera y de la diferencia de cada una con la anterior (casi siempre unos pocos bytes); y
+ *    cantidades en céntimos como varint.
+ *
+ * Es un formato binario: ExportacionMultiple le pasa los movimientos sin formatear en el mismo
+ * recorrido que a los demás formatos. No lleva marca, así que las exportaciones incrementales lo
+ * reescriben entero.
+ */
+public class ExportadorColumnar implements ExportadorBinario {
+
+    // Firma al inicio del fichero: "RACC"
+    static final int FIRMA = 0x52414343;
+
+    static final short VERSION = 1;
+
+    // Filas de cada grupo (las del último pueden ser menos)
+    static final int FILAS_GRUPO = 8192;
+
+    // Bits por fila de la columna de tipos
+    static final int BITS_TIPO = 32 - Integer.numberOfLeadingZeros(Movimiento.Tipo.values().length - 1);
+
+    // Posición en la cabecera del número de grupos y de movimientos (se rellenan al cerrar)
+    static final int POSICION_TOTALES = Integer.BYTES + Short.BYTES + Integer.BYTES;
+
+    // Filas, bytes de las columnas, fecha mínima y máxima, ingresos y retiradas
+    static final int CABECERA_GRUPO = 2 * Integer.BYTES + 4 * Long.BYTES;
+
+    // Bytes máximos de un varint de 64 bits
+    static final int MAX_VARINT = 10;
+
+    /**
+     * Exporta la cuenta a un archivo columnar.
+     *
+     * @param cuenta        La cuenta a exportar
+     * @param nombreArchivo Nombre base del archivo (sin extensión)
+     * @return true si la exportación fue exitosa, false en caso de error
+     */
+    public static boolean exportar(Cuenta cuenta, String nombreArchivo) {
+        if (cuenta == null) {
+            System.out.println("❌ ERROR: Cuenta nula, no se puede exportar.");
+            return false;
+        }
+        if (nombreArchivo == null || nombreArchivo.isBlank()) {
+            System.out.println("❌ ERROR: El nombre del archivo no puede estar vacío.");
+            return false;
+        }
+
+        return !ExportacionMultiple.exportar(cuenta, nombreArchivo, List.of(new ExportadorColumnar())).isEmpty();
+    }
+
+    @Override
+    public String getFormato() { return "Columnar"; }
+
+    @Override
+    public String getExtension() { return ".col"; }
+
+    /**
+     * Abre el archivo y escribe la cabecera.
+     */
+    @Override
+    public ExportadorBinario.Salida abrir(Cuenta cuenta, File archivo) throws IOException {
+        return new Escritor(cuenta, archivo);
+    }
+
+    /**
+     * Escritura de un archivo columnar: acumula las filas de un grupo en columnas y lo codifica
+     * y escribe al llenarse.
+     */
+    static final class Escritor implements ExportadorBinario.Salida {
+        private final FileChannel canal;
+        private final ByteBuffer buffer;
+        private final byte[] tipos = new byte[FILAS_GRUPO];
+        private final long[] centimos = new long[FILAS_GRUPO];
+        private final long[] fechas = new long[FILAS_GRUPO];
+        private int filas;
+        private int grupos;
+        private long total;
+
+        private Escritor(Cuenta cuenta, File archivo) throws IOException {
+            Cliente titular = cuenta.getTitular();
+            byte[] nombre = titular.getNombre().getBytes(StandardCharsets.UTF_8);
+            byte[] dni = titular.getDni().getBytes(StandardCharsets.UTF_8);
+            if (nombre.length > Short.MAX_VALUE || dni.length > Short.MAX_VALUE) {
+                throw new IOException("Texto demasiado largo para la cabecera");
+            }
+            buffer = ByteBuffer.allocate(Math.max(CABECERA_GRUPO + (FILAS_GRUPO * BITS_TIPO + 7) / 8
+                    + 2 * FILAS_GRUPO * MAX_VARINT, POSICION_TOTALES + 20 + nombre.length + dni.length));
+            canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+            buffer.putInt(FIRMA).putShort(VERSION).putInt(FILAS_GRUPO);
+            buffer.putInt(0).putLong(0); // Grupos y movimientos: se rellenan al cerrar
+            buffer.putShort((short) nombre.length).put(nombre);
+            buffer.putShort((short) dni.length).put(dni);
+            escribir();
+        }
+
+        @Override
+        public void movimiento(ExportacionMultiple.Fila fila) throws IOException {
+            tipos[filas] = (byte) fila.getTipo().ordinal();
+            centimos[filas] = fila.getCentimos();
+            fechas[filas] = fila.getFechaMilis();
+            if (++filas == FILAS_GRUPO) escribirGrupo();
+        }
+
+        private void escribirGrupo() throws IOException {
+            if (filas == 0) return;
+            long fechaMin = Long.MAX_VALUE;
+            long fechaMax = Long.MIN_VALUE;
+            long ingresos = 0;
+            long retiradas = 0;
+            buffer.position(CABECERA_GRUPO);
+
+            // Tipos: BITS_TIPO bits por fila, empezando por los bits bajos de cada byte
+            int acumulado = 0;
+            int bits = 0;
+            for (int i = 0; i < filas; i++) {
+                acumulado |= tipos[i] << bits;
+                bits += BITS_TIPO;
+                if (bits >= 8) {
+                    buffer.put((byte) acumulado);
+                    acumulado >>>= 8;
+                    bits -= 8;
+                }
+                if (tipos[i] == Movimiento.Tipo.INGRESO.ordinal()) ingresos += centimos[i];
+                else retiradas += centimos[i];
+            }
+            if (bits > 0) buffer.put((byte) acumulado);
+
+            // Fechas: la primera entera y después la diferencia con la anterior
+            long anterior = 0;
+            for (int i = 0; i < filas; i++) {
+                long fecha = fechas[i];
+                putVarint(buffer, zigzag(fecha - anterior));
+                anterior = fecha;
+                fechaMin = Math.min(fechaMin, fecha);
+                fechaMax = Math.max(fechaMax, fecha);
+            }
+
+            // Cantidades en céntimos
+            for (int i = 0; i < filas; i++) putVarint(buffer, centimos[i]);
+
+            buffer.putInt(0, filas).putInt(Integer.BYTES, buffer.position() - CABECERA_GRUPO)
+                    .putLong(2 * Integer.BYTES, fechaMin).putLong(2 * Integer.BYTES + Long.BYTES, fechaMax)
+                    .putLong(2 * Integer.BYTES + 2 * Long.BYTES, ingresos)
+                    .putLong(2 * Integer.BYTES + 3 * Long.BYTES, retiradas);
+            escribir();
+            grupos++;
+            total += filas;
+            filas = 0;
+        }
+
+        private void escribir() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) canal.write(buffer);
+            buffer.clear();
+        }
+
+        /**
+         * Escribe el último grupo, completa la cabecera y cierra el archivo.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!canal.isOpen()) return;
+            try {
+                escribirGrupo();
+                buffer.putInt(grupos).putLong(total).flip();
+                while (buffer.hasRemaining()) canal.write(buffer, POSICION_TOTALES + buffer.position());
+                buffer.clear();
+            } finally {
+                canal.close();
+            }
+        }
+    }
+
+    // ───────────── Varints ─────────────
+
+    /**
+     * Escribe un valor sin signo de 7 en 7 bits (el bit alto indica que sigue otro byte).
+     */
+    static void putVarint(ByteBuffer buffer, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            buffer.put((byte) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        buffer.put((byte) valor);
+    }
+
+    /**
+     * Convierte un valor con signo para que los de valor absoluto pequeño ocupen pocos bytes.
+     */
+    static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+}
@@ -1,5 +1,3 @@
-import java.io.*;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 /**
@@ -7,9 +5,7 @@ import java.util.List;
  * Incluye información del titular y todos los movimientos realizados.
  * Permite interoperabilidad con otras aplicaciones o análisis de datos.
  */
-public class ExportadorJSON {
-
-    private static final String DIRECTORIO = "exportaciones_banco"; // Carpeta de exportación
+public class ExportadorJSON implements ExportadorTexto {
 
     /**
      * Exporta la cuenta a un archivo JSON.
@@ -19,6 +15,16 @@ public class ExportadorJSON {
      * @return true si la exportación fue exitosa, false si ocurrió un error
      */
     public static boolean exportar(Cuenta cuenta, String nombreArchivo) {
+        return exportar(cuenta, nombreArchivo, false);
+    }
+
+    /**
+     * Exporta la cuenta a un archivo JSON, opcionalmente comprimido en gzip (".gz").
+     *
+     * @param comprimido true para comprimir el archivo (los bloques se comprimen en paralelo)
+     * @return true si la exportación fue exitosa, false si ocurrió un error
+     */
+    public static boolean exportar(Cuenta cuenta, String nombreArchivo, boolean comprimido) {
         // Validación de parámetros
         if (cuenta == null) {
             System.out.println("❌ ERROR: Cuenta nula.");
@@ -30,57 +36,50 @@ public class ExportadorJSON {
             return false;
         }
 
-        // Crear directorio si no existe
-        File dir = new File(DIRECTORIO);
-        if (!dir.exists()) dir.mkdir();
-
-        String rutaCompleta = DIRECTORIO + File.separator + nombreArchivo + ".json";
-        DateTimeFormatter formatoFecha = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        List<Exportador> formato = List.of(new ExportadorJSON());
+        return !(comprimido
+                ? ExportacionMultiple.exportarComprimido(cuenta, nombreArchivo, formato, null, null)
+                : ExportacionMultiple.exportar(cuenta, nombreArchivo, formato)).isEmpty();
+    }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(rutaCompleta))) {
+    @Override
+    public String getFormato() { return "JSON"; }
 
-            // Inicia el objeto JSON
-            writer.write("{\n");
+    @Override
+    public String getExtension() { return ".json"; }
 
-            // Titular de la cuenta
-            writer.write("  \"titular\": {\n");
-            writer.write("    \"nombre\": \"" + escaparJSON(cuenta.getTitular().getNombre()) + "\",\n");
-            writer.write("    \"dni\": \"" + escaparJSON(cuenta.getTitular().getDni()) + "\",\n");
-            writer.write("    \"edad\": " + cuenta.getTitular().getEdad() + "\n");
-            writer.write("  },\n");
+    @Override
+    public void inicio(Cuenta cuenta, FormateadorTexto salida) {
+        // Inicia el objeto JSON
+        salida.texto("{\n");
 
-            // Movimientos de la cuenta
-            writer.write("  \"movimientos\": [\n");
-            List<Movimiento> movimientos = cuenta.getMovimientos();
-            for (int i = 0; i < movimientos.size(); i++) {
-                Movimiento m = movimientos.get(i);
-                writer.write("    {\n");
-                writer.write("      \"tipo\": \"" + m.getTipo() + "\",\n");
-                writer.write("      \"cantidad\": " + String.format("%.2f", m.getCantidad()) + ",\n");
-                writer.write("      \"fechaHora\": \"" + m.getFechaHora().format(formatoFecha) + "\"\n");
-                writer.write("    }" + (i < movimientos.size() - 1 ? "," : "") + "\n");
-            }
-            writer.write("  ]\n");
-            writer.write("}\n");
+        // Titular de la cuenta
+        salida.texto("  \"titular\": {\n")
+                .texto("    \"nombre\": \"").escapadoJSON(cuenta.getTitular().getNombre()).texto("\",\n")
+                .texto("    \"dni\": \"").escapadoJSON(cuenta.getTitular().getDni()).texto("\",\n")
+                .texto("    \"edad\": ").entero(cuenta.getTitular().getEdad()).texto("\n")
+                .texto("  },\n");
 
-            System.out.println("✅ Exportación JSON completada: " + rutaCompleta);
-            return true;
+        // Apertura de los movimientos
+        salida.texto("  \"movimientos\": [\n");
+    }
 
-        } catch (IOException e) {
-            System.out.println("❌ ERROR al escribir JSON: " + e.getMessage());
-            return false;
-        }
+    @Override
+    public void movimiento(ExportacionMultiple.Fila fila, boolean ultimo, FormateadorTexto salida) {
+        salida.texto("    {\n")
+                .texto("      \"tipo\": \"").texto(fila.getTipo().name()).texto("\",\n")
+                .texto("      \"cantidad\": ");
+        fila.escribirCantidad(salida);
+        salida.texto(",\n")
+                .texto("      \"fechaHora\": \"");
+        fila.escribirFecha(salida);
+        salida.texto("\"\n")
+                .texto(ultimo ? "    }\n" : "    },\n");
     }
 
-    /**
-     * Escapa caracteres especiales para JSON
-     * @param texto Texto original
-     * @return Texto escapado
-     */
-    private static String escaparJSON(String texto) {
-        if (texto == null) return "";
-        return texto.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n", "\\n");
+    @Override
+    public void fin(Cuenta cuenta, FormateadorTexto salida) {
+        salida.texto("  ]\n");
+        salida.texto("}\n");
     }
 }
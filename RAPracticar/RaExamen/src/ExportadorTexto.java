@@ -0,0 +1,24 @@
+/**
+ * Formato de exportación de texto (CSV, XML, JSON...).
+ * Cada formato solo decide cómo escribir la cabecera, cada movimiento y el cierre;
+ * el formateo de cantidades y fechas lo hace ExportacionMultiple una sola vez para todos.
+ */
+public non-sealed interface ExportadorTexto extends Exportador {
+
+    /**
+     * Escribe lo que va antes de los movimientos (cabeceras, datos del titular...).
+     */
+    void inicio(Cuenta cuenta, FormateadorTexto salida);
+
+    /**
+     * Escribe un movimiento ya formateado.
+     * @param fila Movimiento con la cantidad y la fecha ya formateadas
+     * @param ultimo true si es el último movimiento de la cuenta
+     */
+    void movimiento(ExportacionMultiple.Fila fila, boolean ultimo, FormateadorTexto salida);
+
+    /**
+     * Escribe lo que va después de los movimientos (cierre de etiquetas, corchetes...).
+     */
+    void fin(Cuenta cuenta, FormateadorTexto salida);
+}
@@ -1,5 +1,3 @@
-import java.io.*;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 /**
@@ -7,9 +5,8 @@ import java.util.List;
  * Incluye información del titular y todos los movimientos realizados.
  * XML es útil para interoperabilidad con otros sistemas y análisis estructurado.
  */
-public class ExportadorXML {
+public class ExportadorXML implements ExportadorTexto {
 
-    private static final String DIRECTORIO = "exportaciones_banco"; // Carpeta de exportación
     private static final String IND = "  "; // Indentación para mejorar legibilidad del XML
 
     /**
@@ -20,6 +17,16 @@ public class ExportadorXML {
      * @return true si la exportación fue exitosa, false en caso de error
      */
     public static boolean exportar(Cuenta cuenta, String nombreArchivo) {
+        return exportar(cuenta, nombreArchivo, false);
+    }
+
+    /**
+     * Exporta la cuenta a un archivo XML, opcionalmente comprimido en gzip (".gz").
+     *
+     * @param comprimido true para comprimir el archivo (los bloques se comprimen en paralelo)
+     * @return true si la exportación fue exitosa, false si ocurrió un error
+     */
+    public static boolean exportar(Cuenta cuenta, String nombreArchivo, boolean comprimido) {
         // Validaciones
         if (cuenta == null) {
             System.out.println("❌ ERROR: Cuenta nula, no se puede exportar.");
@@ -30,74 +37,52 @@ public class ExportadorXML {
             return false;
         }
 
-        // Crear directorio si no existe
-        File dir = new File(DIRECTORIO);
-        if (!dir.exists()) dir.mkdir();
-
-        String rutaCompleta = DIRECTORIO + File.separator + nombreArchivo + ".xml";
-        DateTimeFormatter formatoFecha = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(rutaCompleta))) {
+        List<Exportador> formato = List.of(new ExportadorXML());
+        return !(comprimido
+                ? ExportacionMultiple.exportarComprimido(cuenta, nombreArchivo, formato, null, null)
+                : ExportacionMultiple.exportar(cuenta, nombreArchivo, formato)).isEmpty();
+    }
 
-            // Cabecera XML
-            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-            writer.newLine();
-            writer.write("<cuenta>");
-            writer.newLine();
+    @Override
+    public String getFormato() { return "XML"; }
 
-            // Datos del titular
-            writer.write(IND + "<titular>");
-            writer.newLine();
-            writer.write(IND + IND + "<nombre>" + escaparXML(cuenta.getTitular().getNombre()) + "</nombre>");
-            writer.newLine();
-            writer.write(IND + IND + "<dni>" + escaparXML(cuenta.getTitular().getDni()) + "</dni>");
-            writer.newLine();
-            writer.write(IND + IND + "<edad>" + cuenta.getTitular().getEdad() + "</edad>");
-            writer.newLine();
-            writer.write(IND + "</titular>");
-            writer.newLine();
+    @Override
+    public String getExtension() { return ".xml"; }
 
-            // Movimientos de la cuenta
-            writer.write(IND + "<movimientos>");
-            writer.newLine();
-            List<Movimiento> movimientos = cuenta.getMovimientos();
-            for (Movimiento m : movimientos) {
-                writer.write(IND + IND + "<movimiento tipo=\"" + m.getTipo() + "\">");
-                writer.newLine();
-                writer.write(IND + IND + IND + "<cantidad>" + String.format("%.2f", m.getCantidad()) + "</cantidad>");
-                writer.newLine();
-                writer.write(IND + IND + IND + "<fechaHora>" + m.getFechaHora().format(formatoFecha) + "</fechaHora>");
-                writer.newLine();
-                writer.write(IND + IND + "</movimiento>");
-                writer.newLine();
-            }
-            writer.write(IND + "</movimientos>");
-            writer.newLine();
+    @Override
+    public void inicio(Cuenta cuenta, FormateadorTexto salida) {
+        // Cabecera XML
+        salida.texto("<?xml version=\"1.0\" encoding=\"UTF-8\"?>").saltoLinea()
+                .texto("<cuenta>").saltoLinea();
 
-            // Cierre del nodo principal
-            writer.write("</cuenta>");
-            writer.newLine();
+        // Datos del titular
+        salida.texto(IND + "<titular>").saltoLinea()
+                .texto(IND + IND + "<nombre>").escapadoXML(cuenta.getTitular().getNombre()).texto("</nombre>").saltoLinea()
+                .texto(IND + IND + "<dni>").escapadoXML(cuenta.getTitular().getDni()).texto("</dni>").saltoLinea()
+                .texto(IND + IND + "<edad>").entero(cuenta.getTitular().getEdad()).texto("</edad>").saltoLinea()
+                .texto(IND + "</titular>").saltoLinea();
 
-            System.out.println("✅ Exportación XML completada: " + rutaCompleta);
-            return true;
+        // Apertura de los movimientos
+        salida.texto(IND + "<movimientos>").saltoLinea();
+    }
 
-        } catch (IOException e) {
-            System.out.println("❌ ERROR al escribir XML: " + e.getMessage());
-            return false;
-        }
+    @Override
+    public void movimiento(ExportacionMultiple.Fila fila, boolean ultimo, FormateadorTexto salida) {
+        salida.texto(IND + IND + "<movimiento tipo=\"").texto(fila.getTipo().name()).texto("\">").saltoLinea()
+                .texto(IND + IND + IND + "<cantidad>");
+        fila.escribirCantidad(salida);
+        salida.texto("</cantidad>").saltoLinea()
+                .texto(IND + IND + IND + "<fechaHora>");
+        fila.escribirFecha(salida);
+        salida.texto("</fechaHora>").saltoLinea()
+                .texto(IND + IND + "</movimiento>").saltoLinea();
     }
 
-    /**
-     * Escapa caracteres especiales para XML.
-     * @param texto Texto original
-     * @return Texto seguro para XML
-     */
-    private static String escaparXML(String texto) {
-        if (texto == null) return "";
-        return texto.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&apos;");
+    @Override
+    public void fin(Cuenta cuenta, FormateadorTexto salida) {
+        salida.texto(IND + "</movimientos>").saltoLinea();
+
+        // Cierre del nodo principal
+        salida.texto("</cuenta>").saltoLinea();
     }
 }
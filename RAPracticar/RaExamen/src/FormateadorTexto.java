@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Núcleo de formateo compartido por los exportadores (CSV, XML y JSON).
+ * Escribe cantidades, fechas y textos escapados directamente en un búfer de caracteres
+ * reutilizable, sin crear cadenas intermedias por cada movimiento.
+ *
+ * El resultado es idéntico al de String.format("%.2f", ...) (con la configuración regional
+ * por defecto) y al de DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").
+ */
+public class FormateadorTexto {
+
+    private static final long MILIS_DIA = 86_400_000L;
+
+    // Por encima de este valor un double ya no representa todos los céntimos: se usa String.format
+    private static final long MAX_CENTIMOS_EXACTOS = 1L << 53;
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String SALTO_LINEA = System.lineSeparator();
+
+    // Búfer donde se va componiendo el texto y posición de escritura
+    private char[] buffer = new char[8 * 1024];
+    private int longitud;
+
+    // Símbolos de la configuración regional, igual que los que usa String.format
+    private final char separadorDecimal;
+    private final char ceroLocal;
+
+    // Último día formateado ("yyyy-MM-dd "), para no recalcular la fecha en movimientos del mismo día
+    private long ultimoDia = Long.MIN_VALUE;
+    private final char[] textoDia = new char[11];
+
+    public FormateadorTexto() {
+        DecimalFormatSymbols simbolos = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        this.separadorDecimal = simbolos.getDecimalSeparator();
+        this.ceroLocal = simbolos.getZeroDigit();
+    }
+
+    // ───────────── Texto ─────────────
+
+    public FormateadorTexto texto(String s) {
+        int n = s.length();
+        asegurar(n);
+        s.getChars(0, n, buffer, longitud);
+        longitud += n;
+        return this;
+    }
+
+    /**
+     * Copia el fragmento [desde, hasta) de otro formateador (texto ya formateado).
+     */
+    public FormateadorTexto texto(FormateadorTexto origen, int desde, int hasta) {
+        int n = hasta - desde;
+        asegurar(n);
+        System.arraycopy(origen.buffer, desde, buffer, longitud, n);
+        longitud += n;
+        return this;
+    }
+
+    public FormateadorTexto caracter(char c) {
+        asegurar(1);
+        buffer[longitud++] = c;
+        return this;
+    }
+
+    public FormateadorTexto saltoLinea() {
+        return texto(SALTO_LINEA);
+    }
+
+    public FormateadorTexto entero(int valor) {
+        return texto(Integer.toString(valor));
+    }
+
+    // ───────────── Cantidades ─────────────
+
+    /**
+     * Escribe una cantidad en céntimos con dos decimales, igual que String.format("%.2f", centimos / 100.0).
+     */
+    public FormateadorTexto centimos(long centimos) {
+        if (centimos >= MAX_CENTIMOS_EXACTOS || centimos <= -MAX_CENTIMOS_EXACTOS) {
+            return texto(String.format("%.2f", centimos / 100.0));
+        }
+        asegurar(24);
+        if (centimos < 0) {
+            buffer[longitud++] = '-';
+            centimos = -centimos;
+        }
+        long parteEntera = centimos / 100;
+        int decimales = (int) (centimos % 100);
+
+        // Dígitos de la parte entera, escritos de derecha a izquierda
+        int digitos = 1;
+        for (long v = parteEntera; v >= 10; v /= 10) digitos++;
+        int pos = longitud + digitos;
+        long v = parteEntera;
+        do {
+            buffer[--pos] = (char) (ceroLocal + (int) (v % 10));
+            v /= 10;
+        } while (v > 0);
+        longitud += digitos;
+
+        buffer[longitud++] = separadorDecimal;
+        buffer[longitud++] = (char) (ceroLocal + decimales / 10);
+        buffer[longitud++] = (char) (ceroLocal + decimales % 10);
+        return this;
+    }
+
+    // ───────────── Fechas ─────────────
+
+    /**
+     * Escribe una fecha en milisegundos (ver Movimiento.aMilis) con el formato "yyyy-MM-dd HH:mm:ss".
+     */
+    public FormateadorTexto fecha(long milis) {
+        long dia = Math.floorDiv(milis, MILIS_DIA);
+        if (dia != ultimoDia && !calcularDia(dia)) {
+            return texto(Movimiento.desdeMilis(milis).format(FORMATO_FECHA));
+        }
+        asegurar(19);
+        System.arraycopy(textoDia, 0, buffer, longitud, textoDia.length);
+        longitud += textoDia.length;
+
+        int segundosDia = (int) (Math.floorMod(milis, MILIS_DIA) / 1000);
+        dosDigitos(segundosDia / 3600);
+        buffer[longitud++] = ':';
+        dosDigitos(segundosDia / 60 % 60);
+        buffer[longitud++] = ':';
+        dosDigitos(segundosDia % 60);
+        return this;
+    }
+
+    /**
+     * Calcula "yyyy-MM-dd " para un día contado desde 1970-01-01 (algoritmo days-from-civil inverso).
+     * @return false si el año no cabe en cuatro cifras (se deja el caso raro a DateTimeFormatter)
+     */
+    private boolean calcularDia(long dia) {
+        long z = dia + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long diaEra = z - era * 146_097;
+        long anioEra = (diaEra - diaEra / 1460 + diaEra / 36_524 - diaEra / 146_096) / 365;
+        long diaAnio = diaEra - (365 * anioEra + anioEra / 4 - anioEra / 100);
+        long mp = (5 * diaAnio + 2) / 153;
+        int d = (int) (diaAnio - (153 * mp + 2) / 5 + 1);
+        int m = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long anio = anioEra + era * 400 + (m <= 2 ? 1 : 0);
+        if (anio < 1 || anio > 9999) return false;
+
+        int a = (int) anio;
+        textoDia[0] = (char) ('0' + a / 1000);
+        textoDia[1] = (char) ('0' + a / 100 % 10);
+        textoDia[2] = (char) ('0' + a / 10 % 10);
+        textoDia[3] = (char) ('0' + a % 10);
+        textoDia[4] = '-';
+        textoDia[5] = (char) ('0' + m / 10);
+        textoDia[6] = (char) ('0' + m % 10);
+        textoDia[7] = '-';
+        textoDia[8] = (char) ('0' + d / 10);
+        textoDia[9] = (char) ('0' + d % 10);
+        textoDia[10] = ' ';
+        ultimoDia = dia;
+        return true;
+    }
+
+    private void dosDigitos(int valor) {
+        buffer[longitud++] = (char) ('0' + valor / 10);
+        buffer[longitud++] = (char) ('0' + valor % 10);
+    }
+
+    // ───────────── Escapado ─────────────
+
+    /**
+     * Escribe el texto escapando \, " y saltos de línea para JSON (en una sola pasada).
+     */
+    public FormateadorTexto escapadoJSON(String s) {
+        if (s == null) return this;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            asegurar(2);
+            switch (c) {
+                case '\\' -> { buffer[longitud++] = '\\'; buffer[longitud++] = '\\'; }
+                case '"' -> { buffer[longitud++] = '\\'; buffer[longitud++] = '"'; }
+                case '\n' -> { buffer[longitud++] = '\\'; buffer[longitud++] = 'n'; }
+                default -> buffer[longitud++] = c;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Escribe el texto escapando &, <, >, " y ' para XML (en una sola pasada).
+     */
+    public FormateadorTexto escapadoXML(String s) {
+        if (s == null) return this;
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&' -> texto("&amp;");
+                case '<' -> texto("&lt;");
+                case '>' -> texto("&gt;");
+                case '"' -> texto("&quot;");
+                case '\'' -> texto("&apos;");
+                default -> caracter(c);
+            }
+        }
+        return this;
+    }
+
+    // ───────────── Salida ─────────────
+
+    /**
+     * Escribe el contenido acumulado en el writer y deja el búfer vacío para reutilizarlo.
+     */
+    public void volcar(Writer writer) throws IOException {
+        writer.write(buffer, 0, longitud);
+        longitud = 0;
+    }
+
+    /**
+     * Descarta el contenido acumulado sin escribirlo.
+     */
+    public void descartar() { longitud = 0; }
+
+    /**
+     * Número de caracteres pendientes de volcar.
+     */
+    public int longitud() { return longitud; }
+
+    private void asegurar(int extra) {
+        if (longitud + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, longitud + extra));
+        }
+    }
+}
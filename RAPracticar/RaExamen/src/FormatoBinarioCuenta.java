@@ -0,0 +1,296 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Formato binario compacto y versionado para guardar una cuenta en disco.
+ * Sustituye a la serialización de Java, que escribe descriptores de clase y un
+ * objeto LocalDateTime completo por cada movimiento.
+ *
+ * Estructura (big-endian):
+ *  - Cabecera: firma "RACB" (int), versión (short), nombre y DNI (short de longitud + UTF-8),
+ *    edad (int), número de movimientos (int) y, desde la versión 2, saldo y total ingresado en
+ *    céntimos (long) y fecha del último movimiento (long).
+ *  - Movimientos: registros de ancho fijo con tipo (byte), cantidad (double)
+ *    y fecha/hora en milisegundos desde 1970 (long).
+ *
+ * Con la versión 2 la carga solo lee la cabecera: la cuenta ya sabe su saldo y los movimientos
+ * se leen del fichero cuando se consultan (ver Cuenta.OrigenMovimientos), así que abrir una cuenta
+ * tarda lo mismo sea cual sea su historial. Los ficheros de la versión 1 se leen enteros al cargar.
+ */
+public class FormatoBinarioCuenta {
+
+    // Firma al inicio del fichero: "RACB"
+    private static final int FIRMA = 0x52414342;
+
+    // Primeros bytes de un fichero escrito con ObjectOutputStream
+    private static final short FIRMA_SERIALIZACION = (short) 0xACED;
+
+    // Versión actual del formato y la anterior, sin saldo en la cabecera
+    private static final short VERSION = 2;
+    private static final short VERSION_SIN_SALDO = 1;
+
+    // Tamaño de cada registro de movimiento: tipo + cantidad + fecha/hora
+    static final int REGISTRO = 1 + Double.BYTES + Long.BYTES;
+
+    // Número de tipos de movimiento (para validar el byte de tipo al leer)
+    private static final int NUM_TIPOS = Movimiento.Tipo.values().length;
+
+    // Tamaño del búfer de escritura
+    private static final int TAM_BUFFER = 64 * 1024;
+
+    private FormatoBinarioCuenta() { }
+
+    // ───────────── Escritura ─────────────
+
+    /**
+     * Guarda la cuenta en formato binario.
+     * Se escribe primero en un fichero temporal y después se reemplaza el original,
+     * así un fallo a mitad de escritura nunca deja el fichero a medias.
+     * @param archivo Archivo destino
+     * @param cuenta Cuenta a guardar
+     */
+    public static void guardar(File archivo, Cuenta cuenta) throws IOException {
+        guardar(archivo, cuenta, cuenta.getNumeroMovimientos());
+    }
+
+    /**
+     * Guarda la cuenta con solo sus n primeros movimientos. Esas posiciones ya no cambian,
+     * así que la copia es coherente aunque otros hilos sigan operando sobre la cuenta
+     * (el saldo de la cabecera se calcula con esos mismos movimientos).
+     * @param n Número de movimientos a guardar (como mucho getNumeroMovimientos())
+     */
+    static void guardar(File archivo, Cuenta cuenta, int n) throws IOException {
+        long inicio = Metricas.GUARDADOS.empezar();
+        File temporal = new File(archivo.getPath() + ".tmp");
+        Cliente titular = cuenta.getTitular();
+        byte[] nombre = titular.getNombre().getBytes(StandardCharsets.UTF_8);
+        byte[] dni = titular.getDni().getBytes(StandardCharsets.UTF_8);
+
+        try (FileChannel canal = FileChannel.open(temporal.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(TAM_BUFFER);
+
+            // Cabecera
+            buffer.putInt(FIRMA).putShort(VERSION);
+            putTexto(buffer, nombre);
+            putTexto(buffer, dni);
+            buffer.putInt(titular.getEdad());
+            buffer.putInt(n);
+            int posicionResumen = buffer.position();
+            buffer.putLong(0).putLong(0).putLong(0); // Saldo, ingresos y última fecha: se rellenan al final
+
+            // Movimientos
+            long saldo = 0;
+            long ingresos = 0;
+            long ultimaFecha = Long.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (buffer.remaining() < REGISTRO) vaciar(canal, buffer);
+                Movimiento.Tipo tipo = cuenta.getTipo(i);
+                long centimos = cuenta.getCentimos(i);
+                long fecha = cuenta.getFechaMilis(i);
+                buffer.put((byte) tipo.ordinal()).putDouble(centimos / 100.0).putLong(fecha);
+                if (tipo == Movimiento.Tipo.INGRESO) {
+                    saldo += centimos;
+                    ingresos += centimos;
+                } else {
+                    saldo -= centimos;
+                }
+                ultimaFecha = Math.max(ultimaFecha, fecha);
+            }
+            vaciar(canal, buffer);
+
+            buffer.putLong(saldo).putLong(ingresos).putLong(ultimaFecha).flip();
+            while (buffer.hasRemaining()) canal.write(buffer, posicionResumen + buffer.position());
+            canal.force(true);
+        }
+        Files.move(temporal.toPath(), archivo.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Metricas.GUARDADOS.terminar(inicio, n, archivo.length());
+    }
+
+    private static void putTexto(ByteBuffer buffer, byte[] texto) throws IOException {
+        if (texto.length > Short.MAX_VALUE || texto.length + Short.BYTES > buffer.remaining()) {
+            throw new IOException("Texto demasiado largo para la cabecera (" + texto.length + " bytes)");
+        }
+        buffer.putShort((short) texto.length).put(texto);
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) canal.write(buffer);
+        buffer.clear();
+    }
+
+    // ───────────── Lectura ─────────────
+
+    /**
+     * Indica si el fichero está guardado con la serialización de Java (formato antiguo).
+     */
+    public static boolean esFormatoAntiguo(File archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer firma = ByteBuffer.allocate(Short.BYTES);
+            return canal.read(firma, 0) == Short.BYTES && firma.getShort(0) == FIRMA_SERIALIZACION;
+        }
+    }
+
+    /**
+     * Carga una cuenta guardada en formato binario. De la versión actual solo se lee la cabecera
+     * (los movimientos se leen al consultarlos); de la versión 1, todo el fichero mapeado en memoria.
+     * @param archivo Archivo a leer
+     * @return Cuenta cargada
+     * @throws IOException si el fichero no existe, está truncado o no tiene el formato esperado
+     */
+    public static Cuenta cargar(File archivo) throws IOException {
+        long inicio = Metricas.CARGAS.empezar();
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            ByteBuffer cabecera = ByteBuffer.allocate((int) Math.min(tamano, TAM_BUFFER));
+            while (cabecera.hasRemaining() && canal.read(cabecera) >= 0) { }
+            cabecera.flip();
+            try {
+                if (cabecera.getInt() != FIRMA) throw new IOException("El fichero no es una cuenta en formato binario");
+                short version = cabecera.getShort();
+                if (version != VERSION && version != VERSION_SIN_SALDO) {
+                    throw new IOException("Versión de formato no soportada: " + version);
+                }
+
+                Cliente titular = new Cliente(getTexto(cabecera), getTexto(cabecera), cabecera.getInt());
+                int n = cabecera.getInt();
+                if (version == VERSION_SIN_SALDO) {
+                    Cuenta cuenta = cargarMovimientos(canal, cabecera.position(), titular, n);
+                    Metricas.CARGAS.terminar(inicio, n, tamano);
+                    return cuenta;
+                }
+
+                long saldo = cabecera.getLong();
+                long ingresos = cabecera.getLong();
+                long ultimaFecha = cabecera.getLong();
+                long inicioMovimientos = cabecera.position();
+                if (n < 0 || (long) n * REGISTRO > tamano - inicioMovimientos) {
+                    throw new IOException("Fichero truncado: faltan movimientos");
+                }
+                if (ingresos < 0 || saldo > ingresos) throw new IOException("Fichero de cuenta dañado: saldo no válido");
+
+                Cuenta cuenta = new Cuenta(titular, saldo, ingresos, n, ultimaFecha,
+                        new MovimientosEnDisco(archivo, inicioMovimientos));
+                Metricas.CARGAS.terminar(inicio);
+                return cuenta;
+            } catch (RuntimeException e) { // BufferUnderflowException...
+                throw new IOException("Fichero de cuenta dañado: " + e, e);
+            }
+        }
+    }
+
+    /**
+     * Lee de una vez los n movimientos de un fichero de la versión 1 (sin saldo en la cabecera),
+     * con el fichero mapeado en memoria.
+     * @param inicio Posición del primer movimiento en el fichero
+     */
+    private static Cuenta cargarMovimientos(FileChannel canal, long inicio, Cliente titular, int n) throws IOException {
+        MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, inicio, canal.size() - inicio);
+        if (n < 0 || (long) n * REGISTRO > datos.remaining()) {
+            throw new IOException("Fichero truncado: faltan movimientos");
+        }
+
+        Cuenta cuenta = new Cuenta(titular);
+        Movimiento.Tipo[] tipos = Movimiento.Tipo.values();
+        for (int i = 0; i < n; i++) {
+            Movimiento.Tipo tipo = tipos[datos.get()];
+            long centimos = Movimiento.aCentimos(datos.getDouble());
+            cuenta.registrar(tipo, centimos, datos.getLong());
+        }
+        return cuenta;
+    }
+
+    /**
+     * Movimientos de un fichero de la versión actual que se leen al consultarlos. El fichero se
+     * abre con la primera lectura y se cierra al leer el último; no se mapea, para que mientras
+     * tanto se pueda reemplazar sin problemas en cualquier sistema.
+     */
+    private static final class MovimientosEnDisco implements Cuenta.OrigenMovimientos {
+        private final File archivo;
+        private final long inicio; // Posición del primer movimiento en el fichero
+        private FileChannel canal;
+        private ByteBuffer buffer;
+
+        MovimientosEnDisco(File archivo, long inicio) {
+            this.archivo = archivo;
+            this.inicio = inicio;
+        }
+
+        @Override
+        public void leer(int desde, int cantidad, byte[] tipos, long[] centimos, long[] fechas, int posicion)
+                throws IOException {
+            long empezado = Metricas.CARGAS_DIFERIDAS.empezar();
+            if (canal == null) {
+                canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ);
+                buffer = ByteBuffer.allocateDirect(TAM_BUFFER - TAM_BUFFER % REGISTRO);
+            }
+            long posicionArchivo = inicio + (long) desde * REGISTRO;
+            int fin = posicion + cantidad;
+            while (posicion < fin) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), (long) (fin - posicion) * REGISTRO));
+                while (buffer.hasRemaining()) {
+                    if (canal.read(buffer, posicionArchivo + buffer.position()) < 0) {
+                        throw new IOException("Fichero truncado: faltan movimientos");
+                    }
+                }
+                posicionArchivo += buffer.limit();
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte tipo = buffer.get();
+                    if (tipo < 0 || tipo >= NUM_TIPOS) {
+                        throw new IOException("Fichero de cuenta dañado: tipo de movimiento " + tipo);
+                    }
+                    tipos[posicion] = tipo;
+                    centimos[posicion] = Movimiento.aCentimos(buffer.getDouble());
+                    fechas[posicion++] = buffer.getLong();
+                }
+            }
+            Metricas.CARGAS_DIFERIDAS.terminar(empezado, cantidad, (long) cantidad * REGISTRO);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (canal != null) canal.close();
+            canal = null;
+            buffer = null;
+        }
+    }
+
+    private static String getTexto(ByteBuffer datos) {
+        byte[] texto = new byte[datos.getShort()];
+        datos.get(texto);
+        return new String(texto, StandardCharsets.UTF_8);
+    }
+
+    // ───────────── Migración ─────────────
+
+    /**
+     * Convierte un fichero guardado con serialización de Java al formato binario.
+     * El fichero original se conserva con la extensión ".serializado" por si hiciera falta volver atrás.
+     * @param archivo Archivo en formato antiguo
+     * @return Cuenta leída del fichero
+     */
+    public static Cuenta migrar(File archivo) throws IOException {
+        Cuenta cuenta;
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(archivo))) {
+            cuenta = (Cuenta) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Formato de datos o clase incompatible: " + e.getMessage(), e);
+        }
+        Files.copy(archivo.toPath(), new File(archivo.getPath() + ".serializado").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        guardar(archivo, cuenta);
+        return cuenta;
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias en nanosegundos con cubetas log-lineales (como HdrHistogram):
+ * cada potencia de dos se divide en SUBCUBETAS cubetas iguales, así que cualquier percentil
+ * se conoce con un error relativo menor que 1/SUBCUBETAS (un 3 %) y la memoria es fija.
+ *
+ * Registrar una medida es un incremento atómico en su cubeta y una suma en un LongAdder,
+ * sin candados ni objetos nuevos, así que se puede usar en el camino de cada operación
+ * desde varios hilos a la vez.
+ */
+public class HistogramaLatencia {
+
+    // Bits de subcubeta: 2^5 = 32 cubetas por cada potencia de dos
+    private static final int BITS_SUB = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUB;
+
+    // Mayor potencia de dos con cubetas propias (2^40 ns, unos 18 minutos); lo que pase va a la última
+    private static final int MAX_POTENCIA = 40;
+
+    private static final int CUBETAS = SUBCUBETAS + (MAX_POTENCIA - BITS_SUB + 1) * SUBCUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra una medida.
+     * @param nanos Duración en nanosegundos (las negativas cuentan como 0)
+     */
+    public void registrar(long nanos) {
+        if (nanos < 0) nanos = 0;
+        cubetas.getAndIncrement(indice(nanos));
+        totalNanos.add(nanos);
+        if (nanos > maximo.get()) maximo.accumulateAndGet(nanos, Math::max); // Casi nunca
+    }
+
+    /**
+     * Cubeta de una duración: las SUBCUBETAS primeras son exactas (0..31 ns); después, cada
+     * potencia de dos [2^k, 2^(k+1)) se reparte en SUBCUBETAS cubetas de ancho 2^(k - BITS_SUB).
+     */
+    static int indice(long nanos) {
+        if (nanos < SUBCUBETAS) return (int) nanos;
+        int k = 63 - Long.numberOfLeadingZeros(nanos);
+        if (k > MAX_POTENCIA) return CUBETAS - 1;
+        int sub = (int) (nanos >>> (k - BITS_SUB)) & (SUBCUBETAS - 1);
+        return SUBCUBETAS + (k - BITS_SUB) * SUBCUBETAS + sub;
+    }
+
+    /**
+     * Mayor duración que cae en la cubeta indicada.
+     */
+    static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) return indice;
+        int k = (indice - SUBCUBETAS) / SUBCUBETAS + BITS_SUB;
+        int sub = (indice - SUBCUBETAS) % SUBCUBETAS;
+        long ancho = 1L << (k - BITS_SUB);
+        return ((long) (SUBCUBETAS + sub) << (k - BITS_SUB)) + ancho - 1;
+    }
+
+    // ───────────── Consultas ─────────────
+
+    /**
+     * Copia de las cubetas en este momento, para calcular varios percentiles coherentes entre sí.
+     */
+    public long[] copiar() {
+        long[] copia = new long[CUBETAS];
+        for (int i = 0; i < CUBETAS; i++) copia[i] = cubetas.get(i);
+        return copia;
+    }
+
+    /**
+     * Número de medidas de una copia.
+     */
+    public static long total(long[] copia) {
+        long total = 0;
+        for (long c : copia) total += c;
+        return total;
+    }
+
+    /**
+     * Percentil de una copia (límite superior de su cubeta, nunca mayor que el máximo registrado).
+     * @param percentil Entre 0 y 100
+     * @return Duración en nanosegundos, o 0 si no hay medidas
+     */
+    public long percentil(long[] copia, double percentil) {
+        long total = total(copia);
+        if (total == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < copia.length; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) return Math.min(limiteSuperior(i), getMaximo());
+        }
+        return getMaximo();
+    }
+
+    /**
+     * Suma de todas las duraciones registradas, en nanosegundos.
+     */
+    public long getTotalNanos() { return totalNanos.sum(); }
+
+    /**
+     * Mayor duración registrada, en nanosegundos.
+     */
+    public long getMaximo() { return maximo.get(); }
+
+    /**
+     * Vacía el histograma (las medidas que se registren a la vez pueden perderse o quedarse).
+     */
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) cubetas.set(i, 0);
+        totalNanos.reset();
+        maximo.set(0);
+    }
+}
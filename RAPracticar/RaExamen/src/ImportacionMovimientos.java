@@ -0,0 +1,307 @@
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Utilidades comunes de los importadores (CSV, XML, JSON y columnar): apertura de archivos (también ".gz"),
+ * lectura de cantidades y fechas tal como las escriben los exportadores, y el lote con el que
+ * se pasan los movimientos a la cuenta.
+ *
+ * Los movimientos importados se añaden detrás de los que ya tiene la cuenta, con su fecha
+ * original (con la precisión del archivo, en segundos) y sin comprobar el saldo, igual que al
+ * cargar el diario. Deben estar en orden cronológico y no ser anteriores al último movimiento de la
+ * cuenta, para que las consultas por fechas sigan funcionando.
+ *
+ * Una importación es todo o nada: los movimientos se guardan en el lote mientras se lee el archivo
+ * y solo se añaden a la cuenta (y al diario) cuando se ha leído entero sin errores. Así, si falla,
+ * se puede corregir el archivo e importarlo otra vez sin duplicar movimientos.
+ */
+public class ImportacionMovimientos {
+
+    // Movimientos por trozo del lote: cada trozo se añade a la cuenta (y al diario) de una vez
+    static final int TAM_LOTE = 4096;
+
+    // Tamaño del búfer de lectura de los importadores
+    static final int TAM_BUFFER = 64 * 1024;
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final long MILIS_DIA = 86_400_000L;
+
+    private ImportacionMovimientos() { }
+
+    /**
+     * Importa un archivo exportado eligiendo el formato por su extensión (.csv, .xml o .json,
+     * con o sin ".gz" detrás, o .col).
+     * @return Número de movimientos importados
+     * @throws IOException si el archivo no se puede leer o no tiene el formato esperado
+     */
+    public static int importar(File archivo, Cuenta cuenta) throws IOException {
+        String nombre = archivo.getName().toLowerCase();
+        if (nombre.endsWith(".col")) return ImportadorColumnar.importar(archivo, cuenta);
+        if (nombre.endsWith(ExportacionMultiple.EXTENSION_GZIP)) {
+            nombre = nombre.substring(0, nombre.length() - ExportacionMultiple.EXTENSION_GZIP.length());
+        }
+        if (nombre.endsWith(".csv")) return ImportadorCSV.importar(archivo, cuenta);
+        if (nombre.endsWith(".xml")) return ImportadorXML.importar(archivo, cuenta);
+        if (nombre.endsWith(".json")) return ImportadorJSON.importar(archivo, cuenta);
+        throw new IOException("Formato no reconocido (se esperaba .csv, .xml, .json o .col): " + archivo.getName());
+    }
+
+    /**
+     * Abre un archivo para leerlo, descomprimiéndolo si termina en ".gz".
+     */
+    static InputStream abrir(File archivo) throws IOException {
+        InputStream in = new FileInputStream(archivo);
+        if (archivo.getName().toLowerCase().endsWith(ExportacionMultiple.EXTENSION_GZIP)) {
+            return new GZIPInputStream(in, TAM_BUFFER);
+        }
+        return new BufferedInputStream(in, TAM_BUFFER);
+    }
+
+    // ───────────── Lote ─────────────
+
+    /**
+     * Acumula los movimientos leídos en trozos de TAM_LOTE y, con confirmar(), los añade a la cuenta
+     * trozo a trozo (con Cuenta.registrarLote, sin crear objetos por movimiento).
+     */
+    static final class Lote {
+        private final Cuenta cuenta;
+        private final String unidad;
+        private final List<Trozo> llenos = new ArrayList<>();
+        private Trozo actual = new Trozo();
+        private long ultimaFecha;
+
+        private static final class Trozo {
+            final byte[] tipos = new byte[TAM_LOTE];
+            final long[] centimos = new long[TAM_LOTE];
+            final long[] fechas = new long[TAM_LOTE];
+            int n;
+        }
+
+        /**
+         * @param unidad Cómo se llama cada posición del archivo en los mensajes de error ("Línea", "Movimiento"...)
+         */
+        Lote(Cuenta cuenta, String unidad) {
+            this.cuenta = cuenta;
+            this.unidad = unidad;
+            int n = cuenta.getNumeroMovimientos();
+            this.ultimaFecha = n == 0 ? Long.MIN_VALUE : cuenta.getFechaMilis(n - 1);
+        }
+
+        /**
+         * Añade un movimiento al lote.
+         * @param posicion Posición en el archivo (para los mensajes de error)
+         */
+        void anadir(Movimiento.Tipo tipo, long cantidadCentimos, long fechaMilis, int posicion) throws IOException {
+            if (cantidadCentimos <= 0) {
+                throw new IOException(unidad + " " + posicion + ": cantidad no válida");
+            }
+            if (fechaMilis < ultimaFecha) {
+                throw new IOException(unidad + " " + posicion + ": movimiento anterior al último de la cuenta (" +
+                        Movimiento.desdeMilis(fechaMilis) + ")");
+            }
+            ultimaFecha = fechaMilis;
+            if (actual.n == TAM_LOTE) {
+                llenos.add(actual);
+                actual = new Trozo();
+            }
+            actual.tipos[actual.n] = (byte) tipo.ordinal();
+            actual.centimos[actual.n] = cantidadCentimos;
+            actual.fechas[actual.n] = fechaMilis;
+            actual.n++;
+        }
+
+        /**
+         * Añade a la cuenta todos los movimientos del lote, cuando ya se ha leído el archivo entero.
+         * @return Número de movimientos añadidos
+         */
+        int confirmar() {
+            llenos.add(actual);
+            int total = 0;
+            for (Trozo t : llenos) {
+                cuenta.registrarLote(t.tipos, t.centimos, t.fechas, t.n);
+                total += t.n;
+            }
+            llenos.clear();
+            actual = new Trozo();
+            return total;
+        }
+    }
+
+    // ───────────── Tipos ─────────────
+
+    private static final byte[] INGRESO = { 'I', 'N', 'G', 'R', 'E', 'S', 'O' };
+    private static final byte[] RETIRADA = { 'R', 'E', 'T', 'I', 'R', 'A', 'D', 'A' };
+
+    /**
+     * Lee el tipo de movimiento de los bytes [desde, hasta) sin crear cadenas.
+     * @return El tipo, o null si no es INGRESO ni RETIRADA
+     */
+    static Movimiento.Tipo tipo(byte[] b, int desde, int hasta) {
+        if (iguales(b, desde, hasta, INGRESO)) return Movimiento.Tipo.INGRESO;
+        if (iguales(b, desde, hasta, RETIRADA)) return Movimiento.Tipo.RETIRADA;
+        return null;
+    }
+
+    static boolean iguales(byte[] b, int desde, int hasta, byte[] esperado) {
+        if (hasta - desde != esperado.length) return false;
+        for (int i = 0; i < esperado.length; i++) {
+            if (b[desde + i] != esperado[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Lee el tipo de movimiento de un texto.
+     * @return El tipo, o null si no es INGRESO ni RETIRADA
+     */
+    static Movimiento.Tipo tipo(String texto) {
+        return switch (texto) {
+            case "INGRESO" -> Movimiento.Tipo.INGRESO;
+            case "RETIRADA" -> Movimiento.Tipo.RETIRADA;
+            default -> null;
+        };
+    }
+
+    // ───────────── Cantidades ─────────────
+
+    /**
+     * Lee una cantidad escrita con FormateadorTexto.centimos ("1234.56", "1234,56"...) de los bytes
+     * [desde, hasta) y la devuelve en céntimos, sin pasar por double.
+     * Si hay bytes que no son ASCII (dígitos o separador de otra configuración regional),
+     * se decodifica el texto y se lee con centimos(String).
+     * @return Céntimos, o -1 si el texto no es una cantidad válida
+     */
+    static long centimos(byte[] b, int desde, int hasta, Charset codificacion) {
+        long entero = 0;
+        int decimales = -1; // -1: todavía en la parte entera
+        long fraccion = 0;
+        if (desde == hasta) return -1;
+        for (int i = desde; i < hasta; i++) {
+            int c = b[i];
+            if (c >= '0' && c <= '9') {
+                if (decimales < 0) {
+                    if (entero > (Long.MAX_VALUE - 9) / 1000) return -1;
+                    entero = entero * 10 + (c - '0');
+                } else {
+                    if (++decimales > 2) return -1;
+                    fraccion = fraccion * 10 + (c - '0');
+                }
+            } else if (c < 0) {
+                return centimos(new String(b, desde, hasta - desde, codificacion));
+            } else if ((c == '.' || c == ',') && decimales < 0) {
+                decimales = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (decimales == 1) fraccion *= 10;
+        return entero * 100 + fraccion;
+    }
+
+    /**
+     * Lee una cantidad escrita con cualquier configuración regional (dígitos de otros alfabetos
+     * y cualquier separador decimal) y la devuelve en céntimos.
+     * @return Céntimos, o -1 si el texto no es una cantidad válida
+     */
+    static long centimos(String texto) {
+        long entero = 0;
+        int decimales = -1;
+        long fraccion = 0;
+        if (texto.isEmpty()) return -1;
+        for (int i = 0; i < texto.length(); ) {
+            int c = texto.codePointAt(i);
+            i += Character.charCount(c);
+            int d = Character.digit(c, 10);
+            if (d >= 0) {
+                if (decimales < 0) {
+                    if (entero > (Long.MAX_VALUE - 9) / 1000) return -1;
+                    entero = entero * 10 + d;
+                } else {
+                    if (++decimales > 2) return -1;
+                    fraccion = fraccion * 10 + d;
+                }
+            } else if (decimales < 0 && !Character.isWhitespace(c)) {
+                decimales = 0; // Separador decimal de la configuración regional
+            } else {
+                return -1;
+            }
+        }
+        if (decimales == 1) fraccion *= 10;
+        return entero * 100 + fraccion;
+    }
+
+    // ───────────── Fechas ─────────────
+
+    /**
+     * Lee una fecha "yyyy-MM-dd HH:mm:ss" de los bytes [desde, hasta) y la devuelve en milisegundos
+     * (ver Movimiento.aMilis), sin crear objetos.
+     * @return Milisegundos, o Long.MIN_VALUE si no es una fecha válida
+     */
+    static long fechaMilis(byte[] b, int desde, int hasta) {
+        if (hasta - desde != 19) return fechaMilis(new String(b, desde, hasta - desde, Charset.defaultCharset()));
+        int anio = digitos(b, desde, 4);
+        int mes = digitos(b, desde + 5, 2);
+        int dia = digitos(b, desde + 8, 2);
+        int hora = digitos(b, desde + 11, 2);
+        int minuto = digitos(b, desde + 14, 2);
+        int segundo = digitos(b, desde + 17, 2);
+        if (b[desde + 4] != '-' || b[desde + 7] != '-' || b[desde + 10] != ' '
+                || b[desde + 13] != ':' || b[desde + 16] != ':'
+                || (anio | mes | dia | hora | minuto | segundo) < 0
+                || mes < 1 || mes > 12 || dia < 1 || dia > diasDelMes(anio, mes)
+                || hora > 23 || minuto > 59 || segundo > 59) {
+            return Long.MIN_VALUE;
+        }
+        return diasDesde1970(anio, mes, dia) * MILIS_DIA + (hora * 3600L + minuto * 60L + segundo) * 1000L;
+    }
+
+    /**
+     * Lee una fecha "yyyy-MM-dd HH:mm:ss" de un texto.
+     * @return Milisegundos, o Long.MIN_VALUE si no es una fecha válida
+     */
+    static long fechaMilis(String texto) {
+        try {
+            return Movimiento.aMilis(LocalDateTime.parse(texto, FORMATO_FECHA));
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static int digitos(byte[] b, int desde, int n) {
+        int valor = 0;
+        for (int i = desde; i < desde + n; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            valor = valor * 10 + d;
+        }
+        return valor;
+    }
+
+    private static int diasDelMes(int anio, int mes) {
+        if (mes == 2) return (anio % 4 == 0 && (anio % 100 != 0 || anio % 400 == 0)) ? 29 : 28;
+        return (mes == 4 || mes == 6 || mes == 9 || mes == 11) ? 30 : 31;
+    }
+
+    /**
+     * Días desde 1970-01-01 (algoritmo days-from-civil, el inverso del que usa FormateadorTexto).
+     */
+    private static long diasDesde1970(int anio, int mes, int dia) {
+        long a = mes <= 2 ? anio - 1 : anio;
+        long era = Math.floorDiv(a, 400);
+        long anioEra = a - era * 400;
+        long diaAnio = (153L * (mes > 2 ? mes - 3 : mes + 9) + 2) / 5 + dia - 1;
+        long diaEra = anioEra * 365 + anioEra / 4 - anioEra / 100 + diaAnio;
+        return era * 146_097 + diaEra - 719_468;
+    }
+}
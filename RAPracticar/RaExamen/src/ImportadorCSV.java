@@ -0,0 +1,106 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Importa los movimientos de un archivo CSV generado por ExportadorCSV ("Tipo;Cantidad;FechaHora").
+ * El archivo se lee por bloques de bytes y cada fila se separa y se interpreta directamente sobre
+ * el búfer, sin crear cadenas ni objetos por fila, así que se pueden cargar millones de filas por segundo.
+ */
+public class ImportadorCSV {
+
+    private static final byte SEPARADOR = ';';
+
+    private static final byte[] ENCABEZADO = "Tipo;Cantidad;FechaHora".getBytes(Charset.defaultCharset());
+
+    private ImportadorCSV() { }
+
+    /**
+     * Importa los movimientos del CSV y los añade a la cuenta con su fecha original.
+     * Los movimientos se añaden solo si todo el archivo es válido: si una fila falla no se añade ninguno.
+     *
+     * @param archivo Archivo CSV (puede estar comprimido en ".gz")
+     * @param cuenta  Cuenta donde se añaden los movimientos
+     * @return Número de movimientos importados
+     * @throws IOException si el archivo no se puede leer o alguna fila no es válida
+     */
+    public static int importar(File archivo, Cuenta cuenta) throws IOException {
+        Charset codificacion = Charset.defaultCharset();
+        ImportacionMovimientos.Lote lote = new ImportacionMovimientos.Lote(cuenta, "Línea");
+        byte[] buffer = new byte[ImportacionMovimientos.TAM_BUFFER];
+        int inicio = 0; // Principio de la fila en curso
+        int fin = 0;    // Bytes válidos en el búfer
+        int linea = 0;
+        boolean finArchivo = false;
+
+        try (InputStream in = ImportacionMovimientos.abrir(archivo)) {
+            while (true) {
+                // Busca el final de la fila en curso; si no está en el búfer, lee más
+                int salto = -1;
+                for (int i = inicio; i < fin; i++) {
+                    if (buffer[i] == '\n') { salto = i; break; }
+                }
+                if (salto < 0 && !finArchivo) {
+                    if (inicio > 0) { // Mueve la fila a medias al principio del búfer
+                        System.arraycopy(buffer, inicio, buffer, 0, fin - inicio);
+                        fin -= inicio;
+                        inicio = 0;
+                    } else if (fin == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2); // Fila muy larga
+                    }
+                    int leidos = in.read(buffer, fin, buffer.length - fin);
+                    if (leidos < 0) finArchivo = true;
+                    else fin += leidos;
+                    continue;
+                }
+                if (salto < 0 && inicio == fin) break; // Fin del archivo
+
+                int finFila = salto < 0 ? fin : salto;
+                int siguiente = salto < 0 ? fin : salto + 1;
+                if (finFila > inicio && buffer[finFila - 1] == '\r') finFila--;
+                linea++;
+                if (linea == 1) {
+                    if (!ImportacionMovimientos.iguales(buffer, inicio, finFila, ENCABEZADO)) {
+                        throw new IOException("Línea 1: el encabezado no es \"Tipo;Cantidad;FechaHora\"");
+                    }
+                } else if (finFila > inicio) {
+                    fila(buffer, inicio, finFila, linea, codificacion, lote);
+                }
+                inicio = siguiente;
+            }
+        }
+        if (linea == 0) throw new IOException("El archivo está vacío");
+        return lote.confirmar();
+    }
+
+    /**
+     * Separa e interpreta una fila "TIPO;cantidad;fecha" de los bytes [desde, hasta).
+     */
+    private static void fila(byte[] b, int desde, int hasta, int linea, Charset codificacion,
+                             ImportacionMovimientos.Lote lote) throws IOException {
+        int sep1 = indice(b, desde, hasta);
+        int sep2 = sep1 < 0 ? -1 : indice(b, sep1 + 1, hasta);
+        if (sep2 < 0 || indice(b, sep2 + 1, hasta) >= 0) {
+            throw new IOException("Línea " + linea + ": se esperaban 3 columnas");
+        }
+        Movimiento.Tipo tipo = ImportacionMovimientos.tipo(b, desde, sep1);
+        if (tipo == null) {
+            throw new IOException("Línea " + linea + ": tipo de movimiento no válido");
+        }
+        long centimos = ImportacionMovimientos.centimos(b, sep1 + 1, sep2, codificacion);
+        long fecha = ImportacionMovimientos.fechaMilis(b, sep2 + 1, hasta);
+        if (fecha == Long.MIN_VALUE) {
+            throw new IOException("Línea " + linea + ": fecha no válida");
+        }
+        lote.anadir(tipo, centimos, fecha, linea);
+    }
+
+    private static int indice(byte[] b, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (b[i] == SEPARADOR) return i;
+        }
+        return -1;
+    }
+}
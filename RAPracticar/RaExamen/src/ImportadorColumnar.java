@@ -0,0 +1,250 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+/**
+ * Lee los archivos columnares generados por ExportadorColumnar.
+ * Cada grupo se lee de una vez y sus columnas se decodifican a arrays de primitivos, sin crear
+ * objetos por movimiento. Con resumir() se calculan totales de un rango de fechas usando las
+ * estadísticas de cada grupo: los que quedan fuera no se leen y los que caen dentro no se decodifican.
+ */
+public class ImportadorColumnar {
+
+    private static final int NUM_TIPOS = Movimiento.Tipo.values().length;
+
+    private ImportadorColumnar() { }
+
+    /**
+     * Totales de los movimientos de un rango de fechas.
+     */
+    public static final class Resumen {
+        private long movimientos;
+        private long ingresosCentimos;
+        private long retiradasCentimos;
+        private int gruposDecodificados;
+        private int gruposSaltados;
+
+        public long getMovimientos() { return movimientos; }
+        public long getIngresosCentimos() { return ingresosCentimos; }
+        public long getRetiradasCentimos() { return retiradasCentimos; }
+
+        /**
+         * Grupos cuyas columnas hubo que decodificar (los que caen en parte dentro del rango).
+         */
+        public int getGruposDecodificados() { return gruposDecodificados; }
+
+        /**
+         * Grupos resueltos solo con sus estadísticas (fuera del rango o enteros dentro).
+         */
+        public int getGruposSaltados() { return gruposSaltados; }
+
+        @Override
+        public String toString() {
+            return movimientos + " movimientos, ingresado " + String.format("%.2f", ingresosCentimos / 100.0)
+                    + ", retirado " + String.format("%.2f", retiradasCentimos / 100.0)
+                    + " (" + gruposDecodificados + " grupos leídos, " + gruposSaltados + " saltados)";
+        }
+    }
+
+    /**
+     * Importa los movimientos del archivo y los añade a la cuenta con su fecha original.
+     * Los movimientos se añaden solo si todo el archivo es válido: si un grupo falla no se añade ninguno.
+     *
+     * @param archivo Archivo columnar
+     * @param cuenta  Cuenta donde se añaden los movimientos
+     * @return Número de movimientos importados
+     * @throws IOException si el archivo no se puede leer o no tiene el formato esperado
+     */
+    public static int importar(File archivo, Cuenta cuenta) throws IOException {
+        ImportacionMovimientos.Lote lote = new ImportacionMovimientos.Lote(cuenta, "Movimiento");
+        Movimiento.Tipo[] tipos = Movimiento.Tipo.values();
+        try (Lector lector = new Lector(archivo)) {
+            int posicion = 0;
+            while (lector.siguienteGrupo()) {
+                lector.decodificar();
+                for (int i = 0; i < lector.filas; i++) {
+                    lote.anadir(tipos[lector.tipos[i]], lector.centimos[i], lector.fechas[i], ++posicion);
+                }
+            }
+        }
+        return lote.confirmar();
+    }
+
+    /**
+     * Suma los movimientos del archivo con fecha en [desde, hasta) (null significa sin límite).
+     * @throws IOException si el archivo no se puede leer o no tiene el formato esperado
+     */
+    public static Resumen resumir(File archivo, LocalDateTime desde, LocalDateTime hasta) throws IOException {
+        long inicio = desde == null ? Long.MIN_VALUE : Movimiento.aMilis(desde);
+        long fin = hasta == null ? Long.MAX_VALUE : Movimiento.aMilis(hasta);
+        Resumen resumen = new Resumen();
+        try (Lector lector = new Lector(archivo)) {
+            while (lector.siguienteGrupo()) {
+                if (lector.fechaMax < inicio || lector.fechaMin >= fin) {
+                    resumen.gruposSaltados++;
+                } else if (lector.fechaMin >= inicio && lector.fechaMax < fin) {
+                    resumen.movimientos += lector.filas;
+                    resumen.ingresosCentimos += lector.ingresos;
+                    resumen.retiradasCentimos += lector.retiradas;
+                    resumen.gruposSaltados++;
+                } else {
+                    lector.decodificar();
+                    for (int i = 0; i < lector.filas; i++) {
+                        if (lector.fechas[i] < inicio || lector.fechas[i] >= fin) continue;
+                        resumen.movimientos++;
+                        if (lector.tipos[i] == Movimiento.Tipo.INGRESO.ordinal()) {
+                            resumen.ingresosCentimos += lector.centimos[i];
+                        } else {
+                            resumen.retiradasCentimos += lector.centimos[i];
+                        }
+                    }
+                    resumen.gruposDecodificados++;
+                }
+            }
+        }
+        return resumen;
+    }
+
+    /**
+     * Recorre los grupos de un archivo: primero su cabecera (filas y estadísticas) y, solo si se
+     * pide, sus columnas.
+     */
+    private static final class Lector implements AutoCloseable {
+        private final FileChannel canal;
+        private final long tamano;
+        private final int grupos;
+        private final ByteBuffer cabecera = ByteBuffer.allocate(ExportadorColumnar.CABECERA_GRUPO);
+        private ByteBuffer columnas = ByteBuffer.allocate(0);
+        private long posicion; // Donde empieza el siguiente grupo
+        private int leidos;
+
+        // Grupo actual
+        int filas;
+        long fechaMin;
+        long fechaMax;
+        long ingresos;
+        long retiradas;
+        private int longitud;
+        private long inicioColumnas;
+        final byte[] tipos;
+        final long[] centimos;
+        final long[] fechas;
+
+        Lector(File archivo) throws IOException {
+            canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ);
+            try {
+                tamano = canal.size();
+                ByteBuffer inicio = ByteBuffer.allocate(ExportadorColumnar.POSICION_TOTALES + Integer.BYTES + Long.BYTES);
+                leer(inicio, 0);
+                if (inicio.getInt() != ExportadorColumnar.FIRMA) {
+                    throw new IOException("El archivo no es una exportación columnar");
+                }
+                short version = inicio.getShort();
+                if (version != ExportadorColumnar.VERSION) throw new IOException("Versión de formato no soportada: " + version);
+                int filasGrupo = inicio.getInt();
+                grupos = inicio.getInt();
+                inicio.getLong(); // Movimientos: se cuentan al leer los grupos
+                if (filasGrupo <= 0 || grupos < 0) throw new IOException("Archivo columnar dañado: cabecera no válida");
+                tipos = new byte[filasGrupo];
+                centimos = new long[filasGrupo];
+                fechas = new long[filasGrupo];
+
+                // Nombre y DNI del titular: no se usan al leer
+                posicion = inicio.capacity();
+                for (int i = 0; i < 2; i++) {
+                    ByteBuffer longitudTexto = ByteBuffer.allocate(Short.BYTES);
+                    leer(longitudTexto, posicion);
+                    posicion += Short.BYTES + longitudTexto.getShort();
+                }
+            } catch (IOException e) {
+                canal.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Pasa al grupo siguiente leyendo solo su cabecera.
+         * @return false si no quedan grupos
+         */
+        boolean siguienteGrupo() throws IOException {
+            if (leidos == grupos) return false;
+            cabecera.clear();
+            leer(cabecera, posicion);
+            filas = cabecera.getInt();
+            longitud = cabecera.getInt();
+            fechaMin = cabecera.getLong();
+            fechaMax = cabecera.getLong();
+            ingresos = cabecera.getLong();
+            retiradas = cabecera.getLong();
+            if (filas <= 0 || filas > tipos.length || longitud < 0
+                    || longitud > tamano - posicion - ExportadorColumnar.CABECERA_GRUPO) {
+                throw new IOException("Archivo columnar dañado: grupo " + (leidos + 1) + " no válido");
+            }
+            inicioColumnas = posicion + ExportadorColumnar.CABECERA_GRUPO;
+            posicion = inicioColumnas + longitud;
+            leidos++;
+            return true;
+        }
+
+        /**
+         * Lee y decodifica las columnas del grupo actual en tipos, centimos y fechas.
+         */
+        void decodificar() throws IOException {
+            if (columnas.capacity() < longitud) columnas = ByteBuffer.allocate(longitud);
+            columnas.clear().limit(longitud);
+            leer(columnas, inicioColumnas);
+            try {
+                int acumulado = 0;
+                int bits = 0;
+                int mascara = (1 << ExportadorColumnar.BITS_TIPO) - 1;
+                for (int i = 0; i < filas; i++) {
+                    if (bits < ExportadorColumnar.BITS_TIPO) {
+                        acumulado |= (columnas.get() & 0xFF) << bits;
+                        bits += 8;
+                    }
+                    int tipo = acumulado & mascara;
+                    if (tipo >= NUM_TIPOS) throw new IOException("Archivo columnar dañado: tipo de movimiento " + tipo);
+                    tipos[i] = (byte) tipo;
+                    acumulado >>>= ExportadorColumnar.BITS_TIPO;
+                    bits -= ExportadorColumnar.BITS_TIPO;
+                }
+                long fecha = 0;
+                for (int i = 0; i < filas; i++) {
+                    long delta = varint(columnas);
+                    fecha += (delta >>> 1) ^ -(delta & 1);
+                    fechas[i] = fecha;
+                }
+                for (int i = 0; i < filas; i++) centimos[i] = varint(columnas);
+            } catch (RuntimeException e) { // BufferUnderflowException...
+                throw new IOException("Archivo columnar dañado: " + e, e);
+            }
+        }
+
+        private void leer(ByteBuffer destino, long desde) throws IOException {
+            while (destino.hasRemaining()) {
+                if (canal.read(destino, desde + destino.position()) < 0) {
+                    throw new IOException("Archivo columnar truncado");
+                }
+            }
+            destino.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+
+    private static long varint(ByteBuffer datos) throws IOException {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            byte b = datos.get();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if (b >= 0) return valor;
+        }
+        throw new IOException("Archivo columnar dañado: número demasiado largo");
+    }
+}
@@ -0,0 +1,359 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Importa un archivo JSON generado por ExportadorJSON:
+ * { "titular": { "nombre", "dni", "edad" }, "movimientos": [ { "tipo", "cantidad", "fechaHora" }, ... ] }
+ *
+ * Se recorre el archivo token a token sobre un búfer de bytes (sin construir el documento en memoria
+ * ni crear objetos por movimiento) y se ignoran las claves desconocidas.
+ * La cantidad se escribe con el separador decimal de la configuración regional, así que un número como
+ * 12,50 se acepta: una coma seguida de un dígito forma parte del número.
+ */
+public class ImportadorJSON {
+
+    private static final byte[] TITULAR = bytes("titular");
+    private static final byte[] NOMBRE = bytes("nombre");
+    private static final byte[] DNI = bytes("dni");
+    private static final byte[] EDAD = bytes("edad");
+    private static final byte[] MOVIMIENTOS = bytes("movimientos");
+    private static final byte[] TIPO = bytes("tipo");
+    private static final byte[] CANTIDAD = bytes("cantidad");
+    private static final byte[] FECHA_HORA = bytes("fechaHora");
+
+    private ImportadorJSON() { }
+
+    /**
+     * Importa los movimientos del JSON y los añade a la cuenta con su fecha original.
+     * Los datos del titular se ignoran. Si algo del archivo no es válido no se añade ningún movimiento.
+     *
+     * @param archivo Archivo JSON (puede estar comprimido en ".gz")
+     * @param cuenta  Cuenta donde se añaden los movimientos
+     * @return Número de movimientos importados
+     * @throws IOException si el archivo no se puede leer o no tiene el formato esperado
+     */
+    public static int importar(File archivo, Cuenta cuenta) throws IOException {
+        try (Lector lector = new Lector(ImportacionMovimientos.abrir(archivo))) {
+            return leer(lector, cuenta).importados;
+        }
+    }
+
+    /**
+     * Reconstruye una cuenta a partir de un JSON exportado: crea la cuenta del titular y le añade
+     * todos los movimientos. El titular debe aparecer antes que los movimientos (como lo escribe ExportadorJSON).
+     *
+     * @param archivo Archivo JSON (puede estar comprimido en ".gz")
+     * @return La cuenta reconstruida
+     * @throws IOException si el archivo no se puede leer o no tiene el formato esperado
+     */
+    public static Cuenta leerCuenta(File archivo) throws IOException {
+        try (Lector lector = new Lector(ImportacionMovimientos.abrir(archivo))) {
+            Resultado r = leer(lector, null);
+            if (r.cuenta == null) throw new IOException("El archivo no contiene el titular de la cuenta");
+            return r.cuenta;
+        }
+    }
+
+    private static final class Resultado {
+        Cuenta cuenta;
+        ImportacionMovimientos.Lote lote; // Movimientos leídos, que se añaden al terminar el archivo
+        int importados;
+    }
+
+    /**
+     * Recorre el objeto principal.
+     * @param cuenta Cuenta donde añadir los movimientos, o null para crearla con el titular del archivo
+     */
+    private static Resultado leer(Lector lector, Cuenta cuenta) throws IOException {
+        Resultado r = new Resultado();
+        r.cuenta = cuenta;
+        lector.esperar('{');
+        if (lector.siguienteEs('}')) return r;
+        do {
+            lector.clave();
+            if (lector.textoEs(TITULAR)) {
+                Cliente titular = titular(lector);
+                if (r.cuenta == null) r.cuenta = new Cuenta(titular);
+            } else if (lector.textoEs(MOVIMIENTOS)) {
+                if (r.cuenta == null) throw lector.error("los movimientos aparecen antes que el titular");
+                if (r.lote == null) r.lote = new ImportacionMovimientos.Lote(r.cuenta, "Movimiento");
+                movimientos(lector, r.lote);
+            } else {
+                lector.saltarValor();
+            }
+        } while (lector.coma('}'));
+        if (r.lote != null) r.importados = r.lote.confirmar();
+        return r;
+    }
+
+    private static Cliente titular(Lector lector) throws IOException {
+        String nombre = null;
+        String dni = null;
+        int edad = 0;
+        lector.esperar('{');
+        if (!lector.siguienteEs('}')) {
+            do {
+                lector.clave();
+                if (lector.textoEs(NOMBRE)) {
+                    lector.cadena();
+                    nombre = lector.texto();
+                } else if (lector.textoEs(DNI)) {
+                    lector.cadena();
+                    dni = lector.texto();
+                } else if (lector.textoEs(EDAD)) {
+                    lector.numero();
+                    long valor = ImportacionMovimientos.centimos(lector.texto());
+                    if (valor < 0 || valor % 100 != 0 || valor / 100 > Integer.MAX_VALUE) {
+                        throw lector.error("edad no válida");
+                    }
+                    edad = (int) (valor / 100);
+                } else {
+                    lector.saltarValor();
+                }
+            } while (lector.coma('}'));
+        }
+        if (nombre == null || dni == null) throw lector.error("faltan datos del titular");
+        return new Cliente(nombre, dni, edad);
+    }
+
+    private static void movimientos(Lector lector, ImportacionMovimientos.Lote lote) throws IOException {
+        int n = 0;
+        lector.esperar('[');
+        if (lector.siguienteEs(']')) return;
+        do {
+            n++;
+            Movimiento.Tipo tipo = null;
+            long centimos = -1;
+            long fecha = Long.MIN_VALUE;
+            lector.esperar('{');
+            if (!lector.siguienteEs('}')) {
+                do {
+                    lector.clave();
+                    if (lector.textoEs(TIPO)) {
+                        lector.cadena();
+                        tipo = ImportacionMovimientos.tipo(lector.texto, 0, lector.largo);
+                    } else if (lector.textoEs(CANTIDAD)) {
+                        lector.numero();
+                        centimos = ImportacionMovimientos.centimos(lector.texto, 0, lector.largo, lector.codificacion);
+                    } else if (lector.textoEs(FECHA_HORA)) {
+                        lector.cadena();
+                        fecha = ImportacionMovimientos.fechaMilis(lector.texto, 0, lector.largo);
+                    } else {
+                        lector.saltarValor();
+                    }
+                } while (lector.coma('}'));
+            }
+            if (tipo == null) throw new IOException("Movimiento " + n + ": tipo de movimiento no válido");
+            if (fecha == Long.MIN_VALUE) throw new IOException("Movimiento " + n + ": fecha no válida");
+            lote.anadir(tipo, centimos, fecha, n);
+        } while (lector.coma(']'));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(Charset.defaultCharset());
+    }
+
+    // ───────────── Lector de tokens ─────────────
+
+    /**
+     * Lector de tokens JSON sobre un búfer de bytes. El último texto leído (cadena sin comillas
+     * ni escapes, o número) queda en texto[0, largo) y se reutiliza en cada token.
+     */
+    private static final class Lector implements AutoCloseable {
+        final Charset codificacion = Charset.defaultCharset();
+        private final InputStream in;
+        private final byte[] buffer = new byte[ImportacionMovimientos.TAM_BUFFER];
+        private int pos;
+        private int fin;
+        private long consumidos; // Bytes anteriores al búfer actual (para los mensajes de error)
+
+        byte[] texto = new byte[256];
+        int largo;
+
+        Lector(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Devuelve el byte actual sin consumirlo, o -1 al final del archivo.
+         */
+        private int mirar() throws IOException {
+            return disponibles(1) ? buffer[pos] & 0xff : -1;
+        }
+
+        /**
+         * Se asegura de que haya al menos n bytes en el búfer a partir de pos, leyendo más si hace falta.
+         * @return false si el archivo termina antes
+         */
+        private boolean disponibles(int n) throws IOException {
+            if (fin - pos >= n) return true;
+            System.arraycopy(buffer, pos, buffer, 0, fin - pos);
+            consumidos += pos;
+            fin -= pos;
+            pos = 0;
+            while (fin < n) {
+                int leidos = in.read(buffer, fin, buffer.length - fin);
+                if (leidos < 0) return false;
+                fin += leidos;
+            }
+            return true;
+        }
+
+        /**
+         * Salta los espacios y devuelve el siguiente byte significativo sin consumirlo.
+         */
+        private int significativo() throws IOException {
+            int c = mirar();
+            while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                pos++;
+                c = mirar();
+            }
+            return c;
+        }
+
+        void esperar(char c) throws IOException {
+            if (significativo() != c) throw error("se esperaba '" + c + "'");
+            pos++;
+        }
+
+        /**
+         * Consume el byte si es el esperado (para objetos y arrays vacíos).
+         */
+        boolean siguienteEs(char c) throws IOException {
+            if (significativo() != c) return false;
+            pos++;
+            return true;
+        }
+
+        /**
+         * Tras un valor: consume ',' y devuelve true, o consume el cierre y devuelve false.
+         */
+        boolean coma(char cierre) throws IOException {
+            int c = significativo();
+            pos++;
+            if (c == ',') return true;
+            if (c == cierre) return false;
+            pos--;
+            throw error("se esperaba ',' o '" + cierre + "'");
+        }
+
+        /**
+         * Lee una clave y los dos puntos que la siguen.
+         */
+        void clave() throws IOException {
+            cadena();
+            esperar(':');
+        }
+
+        boolean textoEs(byte[] esperado) {
+            return ImportacionMovimientos.iguales(texto, 0, largo, esperado);
+        }
+
+        String texto() {
+            return new String(texto, 0, largo, codificacion);
+        }
+
+        /**
+         * Lee una cadena entre comillas, resolviendo los escapes.
+         */
+        void cadena() throws IOException {
+            esperar('"');
+            largo = 0;
+            while (true) {
+                int c = mirar();
+                if (c < 0) throw error("cadena sin cerrar");
+                pos++;
+                if (c == '"') return;
+                if (c == '\\') {
+                    int e = mirar();
+                    pos++;
+                    switch (e) {
+                        case '"', '\\', '/' -> anadir(e);
+                        case 'n' -> anadir('\n');
+                        case 'r' -> anadir('\r');
+                        case 't' -> anadir('\t');
+                        case 'b' -> anadir('\b');
+                        case 'f' -> anadir('\f');
+                        case 'u' -> unicode();
+                        default -> throw error("escape no válido");
+                    }
+                } else {
+                    anadir(c);
+                }
+            }
+        }
+
+        private void unicode() throws IOException {
+            int valor = 0;
+            for (int i = 0; i < 4; i++) {
+                int d = Character.digit(mirar(), 16);
+                if (d < 0) throw error("escape \\u no válido");
+                pos++;
+                valor = valor * 16 + d;
+            }
+            byte[] b = String.valueOf((char) valor).getBytes(codificacion);
+            for (byte x : b) anadir(x & 0xff);
+        }
+
+        /**
+         * Lee un número (o literal). Además de los bytes de un número JSON acepta los que no son ASCII
+         * (dígitos de otros alfabetos) y una coma seguida de un dígito (separador decimal local).
+         */
+        void numero() throws IOException {
+            largo = 0;
+            int c = significativo();
+            while (true) {
+                if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+                        || c >= 0x80 || (c >= 'a' && c <= 'z')) {
+                    anadir(c);
+                    pos++;
+                } else if (c == ',' && largo > 0 && disponibles(2)
+                        && buffer[pos + 1] >= '0' && buffer[pos + 1] <= '9') {
+                    anadir(c);
+                    pos++;
+                } else { // Incluida la coma que separa valores, que se deja sin consumir
+                    if (largo == 0) throw error("se esperaba un número");
+                    return;
+                }
+                c = mirar();
+            }
+        }
+
+        /**
+         * Salta un valor completo (cadena, número, literal, objeto o array).
+         */
+        void saltarValor() throws IOException {
+            int c = significativo();
+            if (c == '"') {
+                cadena();
+            } else if (c == '{' || c == '[') {
+                char cierre = c == '{' ? '}' : ']';
+                pos++;
+                if (siguienteEs(cierre)) return;
+                do {
+                    if (cierre == '}') clave();
+                    saltarValor();
+                } while (coma(cierre));
+            } else {
+                numero();
+            }
+        }
+
+        private void anadir(int c) {
+            if (largo == texto.length) texto = Arrays.copyOf(texto, largo * 2);
+            texto[largo++] = (byte) c;
+        }
+
+        IOException error(String mensaje) {
+            return new IOException("Posición " + (consumidos + pos) + ": " + mensaje);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Importa un archivo XML generado por ExportadorXML:
+ * &lt;cuenta&gt; &lt;titular&gt; nombre, dni, edad &lt;/titular&gt;
+ * &lt;movimientos&gt; &lt;movimiento tipo="..."&gt; cantidad, fechaHora &lt;/movimiento&gt;... &lt;/movimientos&gt; &lt;/cuenta&gt;
+ *
+ * Se lee con StAX (XMLStreamReader), elemento a elemento, sin construir el documento en memoria.
+ * Los DTD y las entidades externas están desactivados.
+ */
+public class ImportadorXML {
+
+    private static final XMLInputFactory FABRICA = XMLInputFactory.newFactory();
+
+    static {
+        FABRICA.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        FABRICA.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        FABRICA.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    private ImportadorXML() { }
+
+    /**
+     * Importa los movimientos del XML y los añade a la cuenta con su fecha original.
+     * Los datos del titular se ignoran. Si algo del archivo no es válido no se añade ningún movimiento.
+     *
+     * @param archivo Archivo XML (puede estar comprimido en ".gz")
+     * @param cuenta  Cuenta donde se añaden los movimientos
+     * @return Número de movimientos importados
+     * @throws IOException si el archivo no se puede leer o no tiene el formato esperado
+     */
+    public static int importar(File archivo, Cuenta cuenta) throws IOException {
+        return leer(archivo, cuenta).importados;
+    }
+
+    /**
+     * Reconstruye una cuenta a partir de un XML exportado: crea la cuenta del titular y le añade
+     * todos los movimientos. El titular debe aparecer antes que los movimientos (como lo escribe ExportadorXML).
+     *
+     * @param archivo Archivo XML (puede estar comprimido en ".gz")
+     * @return La cuenta reconstruida
+     * @throws IOException si el archivo no se puede leer o no tiene el formato esperado
+     */
+    public static Cuenta leerCuenta(File archivo) throws IOException {
+        Resultado r = leer(archivo, null);
+        if (r.cuenta == null) throw new IOException("El archivo no contiene el titular de la cuenta");
+        return r.cuenta;
+    }
+
+    private static final class Resultado {
+        Cuenta cuenta;
+        ImportacionMovimientos.Lote lote; // Movimientos leídos, que se añaden al terminar el documento
+        int importados;
+    }
+
+    /**
+     * Recorre el documento.
+     * @param cuenta Cuenta donde añadir los movimientos, o null para crearla con el titular del archivo
+     */
+    private static Resultado leer(File archivo, Cuenta cuenta) throws IOException {
+        Resultado r = new Resultado();
+        r.cuenta = cuenta;
+        // ExportadorXML escribe con la codificación por defecto, así que se lee con la misma
+        try (InputStream in = ImportacionMovimientos.abrir(archivo)) {
+            XMLStreamReader xml = FABRICA.createXMLStreamReader(in, Charset.defaultCharset().name());
+            try {
+                xml.nextTag();
+                if (!xml.getLocalName().equals("cuenta")) throw error(xml, "se esperaba <cuenta>");
+                while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    switch (xml.getLocalName()) {
+                        case "titular" -> {
+                            Cliente titular = titular(xml);
+                            if (r.cuenta == null) r.cuenta = new Cuenta(titular);
+                        }
+                        case "movimientos" -> {
+                            if (r.cuenta == null) throw error(xml, "los movimientos aparecen antes que el titular");
+                            if (r.lote == null) r.lote = new ImportacionMovimientos.Lote(r.cuenta, "Movimiento");
+                            movimientos(xml, r.lote);
+                        }
+                        default -> saltar(xml);
+                    }
+                }
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("XML no válido: " + e.getMessage(), e);
+        }
+        if (r.lote != null) r.importados = r.lote.confirmar();
+        return r;
+    }
+
+    private static Cliente titular(XMLStreamReader xml) throws XMLStreamException, IOException {
+        String nombre = null;
+        String dni = null;
+        int edad = 0;
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (xml.getLocalName()) {
+                case "nombre" -> nombre = xml.getElementText();
+                case "dni" -> dni = xml.getElementText();
+                case "edad" -> {
+                    long valor = ImportacionMovimientos.centimos(xml.getElementText().trim());
+                    if (valor < 0 || valor % 100 != 0 || valor / 100 > Integer.MAX_VALUE) {
+                        throw error(xml, "edad no válida");
+                    }
+                    edad = (int) (valor / 100);
+                }
+                default -> saltar(xml);
+            }
+        }
+        if (nombre == null || dni == null) throw error(xml, "faltan datos del titular");
+        return new Cliente(nombre, dni, edad);
+    }
+
+    private static void movimientos(XMLStreamReader xml, ImportacionMovimientos.Lote lote) throws XMLStreamException, IOException {
+        int n = 0;
+        while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (!xml.getLocalName().equals("movimiento")) {
+                saltar(xml);
+                continue;
+            }
+            n++;
+            Movimiento.Tipo tipo = ImportacionMovimientos.tipo(String.valueOf(xml.getAttributeValue(null, "tipo")));
+            long centimos = -1;
+            long fecha = Long.MIN_VALUE;
+            while (xml.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "cantidad" -> centimos = ImportacionMovimientos.centimos(xml.getElementText().trim());
+                    case "fechaHora" -> fecha = ImportacionMovimientos.fechaMilis(xml.getElementText().trim());
+                    default -> saltar(xml);
+                }
+            }
+            if (tipo == null) throw new IOException("Movimiento " + n + ": tipo de movimiento no válido");
+            if (fecha == Long.MIN_VALUE) throw new IOException("Movimiento " + n + ": fecha no válida");
+            lote.anadir(tipo, centimos, fecha, n);
+        }
+    }
+
+    /**
+     * Salta el elemento actual con todo su contenido.
+     */
+    private static void saltar(XMLStreamReader xml) throws XMLStreamException {
+        int profundidad = 1;
+        while (profundidad > 0) {
+            int evento = xml.next();
+            if (evento == XMLStreamConstants.START_ELEMENT) profundidad++;
+            else if (evento == XMLStreamConstants.END_ELEMENT) profundidad--;
+        }
+    }
+
+    private static IOException error(XMLStreamReader xml, String mensaje) {
+        return new IOException("Línea " + xml.getLocation().getLineNumber() + ": " + mensaje);
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.Arrays;
+
+/**
+ * Índice del saldo mínimo de una cuenta, para consultar el mínimo de un rango en O(log n).
+ * Es un árbol de 16 ramas que se construye según se añaden saldos: el nivel 0 guarda el mínimo
+ * de cada bloque de 16 movimientos, el nivel 1 el de cada 256, y así sucesivamente.
+ *
+ * Solo escribe un hilo cada vez (el que publica movimientos en Cuenta) y lo hace antes de
+ * publicarlos, así que los lectores solo consultan grupos ya completos y que no cambian.
+ */
+class IndiceSaldoMinimo {
+
+    // Elementos por grupo en cada nivel (coincide con el tamaño de bloque de Cuenta)
+    static final int BITS_GRUPO = 4;
+    static final int GRUPO = 1 << BITS_GRUPO;
+
+    // 16^8 supera Integer.MAX_VALUE, así que nunca hacen falta más niveles
+    private static final int NIVELES = 8;
+
+    // minimos[L][g]: saldo mínimo del grupo g de 16^(L+1) movimientos
+    private final long[][] minimos = new long[NIVELES][];
+
+    // Grupos completos en cada nivel y mínimo del grupo que se está llenando
+    private final int[] completos = new int[NIVELES];
+    private final long[] parcial = new long[NIVELES];
+
+    // Saldos añadidos en total
+    private int anadidos;
+
+    IndiceSaldoMinimo() {
+        for (int nivel = 0; nivel < NIVELES; nivel++) minimos[nivel] = new long[GRUPO];
+    }
+
+    /**
+     * Añade el saldo que queda tras el siguiente movimiento.
+     */
+    void anadir(long saldo) {
+        parcial[0] = anadidos % GRUPO == 0 ? saldo : Math.min(parcial[0], saldo);
+        anadidos++;
+        if (anadidos % GRUPO == 0) cerrarGrupo(0, parcial[0]);
+    }
+
+    private void cerrarGrupo(int nivel, long minimo) {
+        long[] m = minimos[nivel];
+        int g = completos[nivel];
+        if (g == m.length) {
+            m = Arrays.copyOf(m, g * 2);
+            minimos[nivel] = m;
+        }
+        m[g] = minimo;
+        completos[nivel] = ++g;
+
+        // El mínimo sube al grupo del nivel siguiente
+        if (nivel + 1 == NIVELES) return;
+        parcial[nivel + 1] = g % GRUPO == 1 ? minimo : Math.min(parcial[nivel + 1], minimo);
+        if (g % GRUPO == 0) cerrarGrupo(nivel + 1, parcial[nivel + 1]);
+    }
+
+    /**
+     * Devuelve el saldo mínimo de los bloques completos [desde, hasta) (bloques de GRUPO movimientos),
+     * o Long.MAX_VALUE si el rango está vacío. Recorre como mucho 2 * (GRUPO - 1) grupos por nivel.
+     */
+    long minimo(int desde, int hasta) {
+        long minimo = Long.MAX_VALUE;
+        for (int nivel = 0; desde < hasta; nivel++) {
+            long[] m = minimos[nivel];
+            while (desde < hasta && desde % GRUPO != 0) minimo = Math.min(minimo, m[desde++]);
+            while (desde < hasta && hasta % GRUPO != 0) minimo = Math.min(minimo, m[--hasta]);
+            desde >>>= BITS_GRUPO;
+            hasta >>>= BITS_GRUPO;
+        }
+        return minimo;
+    }
+}
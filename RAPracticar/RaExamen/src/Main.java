@@ -1,6 +1,12 @@
 // Java
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * Clase principal mínima. Solo expone un método para iniciar el programa.
+ * Sin argumentos abre el menú; con "--lotes [archivo]" aplica las órdenes del archivo
+ * (o de la entrada estándar si no se indica o es "-") sin menú.
  */
 public class Main {
 
@@ -8,7 +14,28 @@ public class Main {
         new AppBanco().ejecutar();
     }
 
+    /**
+     * Ejecuta el modo por lotes.
+     * @param ruta Archivo de órdenes, o "-" para la entrada estándar
+     * @return Código de salida
+     */
+    public static int iniciarLotes(String ruta) {
+        try (InputStream entrada = ruta.equals("-") ? System.in : new FileInputStream(ruta)) {
+            return new AppBanco().ejecutarLotes(entrada);
+        } catch (IOException e) {
+            System.out.println("❌ No se pudo abrir '" + ruta + "': " + e.getMessage());
+            return 2;
+        }
+    }
+
     public static void main(String[] args) {
-        iniciar();
+        if (args.length == 0) {
+            iniciar();
+        } else if (args[0].equals("--lotes") && args.length <= 2) {
+            System.exit(iniciarLotes(args.length == 2 ? args[1] : "-"));
+        } else {
+            System.out.println("Uso: java Main [--lotes [archivo | -]]");
+            System.exit(2);
+        }
     }
 }
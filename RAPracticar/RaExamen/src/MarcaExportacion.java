@@ -0,0 +1,172 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Marca de agua de un archivo exportado, guardada a su lado como "archivo.marca".
+ * Permite la exportación incremental: dice cuántos movimientos tiene ya el archivo y dónde empieza
+ * su cola (el último movimiento y el cierre), que es lo único que hay que reescribir para añadir
+ * movimientos nuevos.
+ *
+ * Para no continuar un archivo que no corresponde, se guardan también:
+ *  - la longitud del archivo y un CRC32 de su cola (detecta si se ha modificado o truncado);
+ *  - una huella de la cuenta: CRC32 del DNI y del último movimiento exportado (detecta si es
+ *    otra cuenta o si su historial ya no coincide), junto con los símbolos de la configuración
+ *    regional, el salto de línea y la codificación (las filas nuevas deben escribirse igual
+ *    que las anteriores).
+ *
+ * La codificación es la que se usó al escribir el archivo (UTF-8 en las exportaciones mapeadas), no
+ * la de esta ejecución: se guarda en la marca y la exportación incremental sigue escribiendo con ella.
+ */
+public class MarcaExportacion {
+
+    private static final String EXTENSION = ".marca";
+
+    // Tamaño máximo de cola que se comprueba (la cola real es un movimiento más el cierre)
+    private static final int MAX_COLA = 64 * 1024;
+
+    private final int movimientos;
+    private final long longitud;
+    private final long inicioCola;
+    private final long crcCola;
+    private final long huella;
+    private final Charset codificacion;
+
+    MarcaExportacion(int movimientos, long longitud, long inicioCola, long crcCola, long huella,
+                     Charset codificacion) {
+        this.movimientos = movimientos;
+        this.longitud = longitud;
+        this.inicioCola = inicioCola;
+        this.crcCola = crcCola;
+        this.huella = huella;
+        this.codificacion = codificacion;
+    }
+
+    /**
+     * Número de movimientos que ya contiene el archivo exportado.
+     */
+    public int getMovimientos() { return movimientos; }
+
+    /**
+     * Posición (en bytes) donde empieza la cola del archivo: el último movimiento, o el cierre si no hay ninguno.
+     */
+    public long getInicioCola() { return inicioCola; }
+
+    /**
+     * Codificación con la que está escrito el archivo: las filas nuevas deben escribirse con ella.
+     */
+    public Charset getCodificacion() { return codificacion; }
+
+    // ───────────── Lectura y escritura ─────────────
+
+    private static File archivoMarca(File exportado) {
+        return new File(exportado.getPath() + EXTENSION);
+    }
+
+    /**
+     * Lee la marca de un archivo exportado y comprueba que sigue valiendo para la cuenta.
+     * @return La marca, o null si no existe, está dañada o el archivo/la cuenta ya no coinciden
+     */
+    public static MarcaExportacion leer(File exportado, Cuenta cuenta) {
+        File archivo = archivoMarca(exportado);
+        if (!archivo.exists() || !exportado.exists()) return null;
+        Properties p = new Properties();
+        try (InputStream in = new FileInputStream(archivo)) {
+            p.load(in);
+            MarcaExportacion marca = new MarcaExportacion(
+                    Integer.parseInt(p.getProperty("movimientos")),
+                    Long.parseLong(p.getProperty("longitud")),
+                    Long.parseLong(p.getProperty("inicioCola")),
+                    Long.parseLong(p.getProperty("crcCola")),
+                    Long.parseLong(p.getProperty("huella")),
+                    Charset.forName(p.getProperty("codificacion")));
+            return marca.esValida(exportado, cuenta) ? marca : null;
+        } catch (IOException | RuntimeException e) { // Fichero ilegible, propiedades que faltan o codificación no soportada
+            return null;
+        }
+    }
+
+    private boolean esValida(File exportado, Cuenta cuenta) throws IOException {
+        return movimientos >= 0 && movimientos <= cuenta.getNumeroMovimientos()
+                && inicioCola >= 0 && inicioCola <= longitud && longitud - inicioCola <= MAX_COLA
+                && exportado.length() == longitud
+                && crcCola(exportado, inicioCola, longitud) == crcCola
+                && huella(cuenta, movimientos, codificacion) == huella;
+    }
+
+    /**
+     * Guarda la marca de un archivo recién exportado (escribe un temporal y lo reemplaza).
+     * @param movimientos Movimientos exportados (siempre desde el primero)
+     * @param inicioCola  Posición donde empieza la cola del archivo
+     * @param codificacion Codificación con la que se escribió el archivo
+     */
+    public static void guardar(File exportado, Cuenta cuenta, int movimientos, long inicioCola,
+                               Charset codificacion) throws IOException {
+        long longitud = exportado.length();
+        Properties p = new Properties();
+        p.setProperty("movimientos", Integer.toString(movimientos));
+        p.setProperty("longitud", Long.toString(longitud));
+        p.setProperty("inicioCola", Long.toString(inicioCola));
+        p.setProperty("crcCola", Long.toString(crcCola(exportado, inicioCola, longitud)));
+        p.setProperty("huella", Long.toString(huella(cuenta, movimientos, codificacion)));
+        p.setProperty("codificacion", codificacion.name());
+
+        File archivo = archivoMarca(exportado);
+        File temporal = new File(archivo.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temporal)) {
+            p.store(out, "Marca de exportación incremental");
+        }
+        Files.move(temporal.toPath(), archivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Borra la marca (antes de modificar el archivo, para que un fallo a medias nunca deje una marca falsa).
+     */
+    public static void borrar(File exportado) throws IOException {
+        Files.deleteIfExists(archivoMarca(exportado).toPath());
+    }
+
+    // ───────────── Comprobaciones ─────────────
+
+    private static long crcCola(File exportado, long desde, long hasta) throws IOException {
+        if (hasta - desde > MAX_COLA) return -1;
+        byte[] cola = new byte[(int) (hasta - desde)];
+        try (RandomAccessFile raf = new RandomAccessFile(exportado, "r")) {
+            raf.seek(desde);
+            raf.readFully(cola);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(cola);
+        return crc.getValue();
+    }
+
+    private static long huella(Cuenta cuenta, int movimientos, Charset codificacion) {
+        CRC32 crc = new CRC32();
+        crc.update(cuenta.getTitular().getDni().getBytes(StandardCharsets.UTF_8));
+        DecimalFormatSymbols simbolos = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        crc.update((simbolos.getDecimalSeparator() + "" + simbolos.getZeroDigit() + System.lineSeparator()
+                + codificacion.name())
+                .getBytes(StandardCharsets.UTF_8));
+        if (movimientos > 0) {
+            int i = movimientos - 1;
+            long centimos = cuenta.getCentimos(i);
+            long fecha = cuenta.getFechaMilis(i);
+            crc.update(cuenta.getTipo(i).ordinal());
+            for (int b = 0; b < Long.BYTES; b++) crc.update((int) (centimos >>> (8 * b)));
+            for (int b = 0; b < Long.BYTES; b++) crc.update((int) (fecha >>> (8 * b)));
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de rendimiento de la aplicación: latencia (HistogramaLatencia) y contadores de
+ * ingresos, retiradas, cargas (y lecturas diferidas de movimientos), guardados, puntos de
+ * control, commits del diario y segmentos movidos al disco y leídos de él (AlmacenSegmentos) de la
+ * cuenta y de cada formato de exportación.
+ *
+ * Los ingresos y retiradas se cuentan todos, pero su latencia solo se mide en una de cada
+ * MUESTREO_CAMINO_CRITICO operaciones elegidas al azar: leer el reloj dos veces cuesta más que la
+ * propia medida, y así el coste medio por operación se queda en unos pocos nanosegundos.
+ * Los percentiles de una muestra aleatoria son una estimación sin sesgo de los de todas.
+ *
+ * Se consultan por JMX (MBean "RaExamen:type=Metricas", por ejemplo con JConsole o VisualVM)
+ * o en el informe de texto que se vuelca periódicamente a un archivo.
+ */
+public final class Metricas {
+
+    // Nombre del MBean en el servidor de la plataforma
+    public static final String NOMBRE_MBEAN = "RaExamen:type=Metricas";
+
+    // Una de cada cuántas operaciones del camino crítico se mide (potencia de dos)
+    static final int MUESTREO_CAMINO_CRITICO = 16;
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Operaciones en el orden en que se crearon (para el informe) y por nombre
+    private static final List<Operacion> OPERACIONES = new CopyOnWriteArrayList<>();
+    private static final Map<String, Operacion> POR_NOMBRE = new ConcurrentHashMap<>();
+
+    public static final Operacion INGRESOS = operacion("ingreso", MUESTREO_CAMINO_CRITICO);
+    public static final Operacion RETIRADAS = operacion("retirada", MUESTREO_CAMINO_CRITICO);
+    public static final Operacion CARGAS = operacion("carga");
+    public static final Operacion CARGAS_DIFERIDAS = operacion("carga diferida");
+    public static final Operacion GUARDADOS = operacion("guardado");
+    public static final Operacion PUNTOS_CONTROL = operacion("punto de control");
+    public static final Operacion COMMITS_DIARIO = operacion("commit del diario");
+    public static final Operacion SEGMENTOS_GUARDADOS = operacion("segmento a disco");
+    public static final Operacion SEGMENTOS_LEIDOS = operacion("segmento desde disco");
+    public static final Operacion FALLOS_SEGMENTOS = operacion("fallo de segmento a disco");
+
+    private static ScheduledExecutorService volcador;
+    private static ScheduledFuture<?> volcado;
+
+    private Metricas() { }
+
+    /**
+     * Latencias y contadores de un tipo de operación. Uso:
+     * long inicio = op.empezar(); ...operación...; op.terminar(inicio);
+     */
+    public static final class Operacion {
+        private final String nombre;
+        private final int mascara; // muestreo - 1
+        private final HistogramaLatencia latencias = new HistogramaLatencia();
+        private final LongAdder operaciones = new LongAdder();
+        private final LongAdder filas = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private Operacion(String nombre, int muestreo) {
+            this.nombre = nombre;
+            this.mascara = muestreo - 1;
+        }
+
+        /**
+         * Marca el inicio de una operación.
+         * @return System.nanoTime() si esta operación se mide, o 0 si solo se cuenta
+         */
+        public long empezar() {
+            if (mascara != 0 && (ThreadLocalRandom.current().nextInt() & mascara) != 0) return 0;
+            return System.nanoTime();
+        }
+
+        /**
+         * Cuenta la operación y, si se midió, registra su latencia.
+         * @param inicio Valor devuelto por empezar()
+         */
+        public void terminar(long inicio) {
+            operaciones.increment();
+            if (inicio != 0) latencias.registrar(System.nanoTime() - inicio);
+        }
+
+        /**
+         * Como terminar(inicio), para una operación que ha procesado filas movimientos y escrito bytes bytes.
+         */
+        public void terminar(long inicio, long filas, long bytes) {
+            terminar(inicio);
+            this.filas.add(filas);
+            this.bytes.add(bytes);
+        }
+
+        public String getNombre() { return nombre; }
+
+        public HistogramaLatencia getLatencias() { return latencias; }
+
+        /**
+         * Resumen de la operación en este momento.
+         */
+        public Resumen resumen() {
+            long[] copia = latencias.copiar();
+            return new Resumen(nombre, operaciones.sum(), HistogramaLatencia.total(copia), latencias.getTotalNanos(),
+                    latencias.percentil(copia, 50), latencias.percentil(copia, 99),
+                    latencias.percentil(copia, 99.9), latencias.getMaximo(), filas.sum(), bytes.sum());
+        }
+
+        void reiniciar() {
+            latencias.reiniciar();
+            operaciones.reset();
+            filas.reset();
+            bytes.reset();
+        }
+    }
+
+    /**
+     * Devuelve la operación con ese nombre, creándola la primera vez.
+     */
+    public static Operacion operacion(String nombre) {
+        return operacion(nombre, 1);
+    }
+
+    /**
+     * @param muestreo Una de cada cuántas operaciones se mide (potencia de dos; 1 para medirlas todas)
+     */
+    private static Operacion operacion(String nombre, int muestreo) {
+        return POR_NOMBRE.computeIfAbsent(nombre, n -> {
+            Operacion op = new Operacion(n, muestreo);
+            OPERACIONES.add(op);
+            return op;
+        });
+    }
+
+    /**
+     * Operación de exportación de un formato ("exportación CSV"...).
+     */
+    public static Operacion exportacion(String formato) {
+        return operacion("exportación " + formato);
+    }
+
+    /**
+     * Vacía todas las métricas.
+     */
+    public static void reiniciar() {
+        for (Operacion op : OPERACIONES) op.reiniciar();
+    }
+
+    // ───────────── Resumen e informe ─────────────
+
+    /**
+     * Resumen de una operación (es el tipo que ve JMX: cada getter es un campo).
+     * Las latencias están en nanosegundos y salen de las operaciones medidas.
+     */
+    public static final class Resumen {
+        private final String nombre;
+        private final long operaciones;
+        private final long medidas;
+        private final long totalNanos;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long maximo;
+        private final long filas;
+        private final long bytes;
+
+        Resumen(String nombre, long operaciones, long medidas, long totalNanos, long p50, long p99, long p999,
+                long maximo, long filas, long bytes) {
+            this.nombre = nombre;
+            this.operaciones = operaciones;
+            this.medidas = medidas;
+            this.totalNanos = totalNanos;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.maximo = maximo;
+            this.filas = filas;
+            this.bytes = bytes;
+        }
+
+        public String getNombre() { return nombre; }
+        public long getOperaciones() { return operaciones; }
+        public long getMedidas() { return medidas; }
+        public long getMediaNanos() { return medidas == 0 ? 0 : totalNanos / medidas; }
+        public long getP50Nanos() { return p50; }
+        public long getP99Nanos() { return p99; }
+        public long getP999Nanos() { return p999; }
+        public long getMaximoNanos() { return maximo; }
+        public long getFilas() { return filas; }
+        public long getBytes() { return bytes; }
+
+        /**
+         * Filas por segundo de trabajo (filas entre el tiempo total de las operaciones).
+         * Solo tiene sentido en las operaciones que se miden todas (cargas, guardados y exportaciones).
+         */
+        public double getFilasPorSegundo() { return totalNanos == 0 ? 0 : filas * 1e9 / totalNanos; }
+    }
+
+    /**
+     * Resumen de todas las operaciones que ya se han registrado alguna vez.
+     */
+    public static List<Resumen> resumenes() {
+        List<Resumen> lista = new ArrayList<>();
+        for (Operacion op : OPERACIONES) lista.add(op.resumen());
+        return lista;
+    }
+
+    /**
+     * Informe de texto con una línea por operación.
+     */
+    public static String informe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Métricas ").append(LocalDateTime.now().format(FORMATO_FECHA)).append(" ===\n");
+        sb.append(String.format("%-20s %10s %10s %10s %10s %10s %10s %12s %12s%n",
+                "Operación", "Núm.", "Media", "p50", "p99", "p99.9", "Máx.", "Filas/s", "Bytes"));
+        for (Resumen r : resumenes()) {
+            boolean conFilas = r.getFilas() > 0;
+            boolean medida = r.getMedidas() > 0; // Con muestreo, puede que aún no se haya medido ninguna
+            sb.append(String.format("%-20s %10d %10s %10s %10s %10s %10s %12s %12s%n",
+                    r.getNombre(), r.getOperaciones(), duracion(r.getMediaNanos(), medida),
+                    duracion(r.getP50Nanos(), medida), duracion(r.getP99Nanos(), medida),
+                    duracion(r.getP999Nanos(), medida), duracion(r.getMaximoNanos(), medida),
+                    conFilas ? String.format("%.0f", r.getFilasPorSegundo()) : "-",
+                    conFilas ? Long.toString(r.getBytes()) : "-"));
+        }
+        return sb.toString();
+    }
+
+    private static String duracion(long nanos, boolean medida) {
+        if (!medida) return "-";
+        if (nanos < 10_000) return nanos + " ns";
+        if (nanos < 10_000_000) return String.format("%.1f µs", nanos / 1e3);
+        if (nanos < 10_000_000_000L) return String.format("%.1f ms", nanos / 1e6);
+        return String.format("%.1f s", nanos / 1e9);
+    }
+
+    // ───────────── JMX ─────────────
+
+    /**
+     * Interfaz de gestión del MBean de métricas.
+     */
+    public interface MetricasMXBean {
+        List<Resumen> getOperaciones();
+
+        String getInforme();
+
+        void reiniciar();
+    }
+
+    private static final class Bean implements MetricasMXBean {
+        @Override
+        public List<Resumen> getOperaciones() { return resumenes(); }
+
+        @Override
+        public String getInforme() { return informe(); }
+
+        @Override
+        public void reiniciar() { Metricas.reiniciar(); }
+    }
+
+    /**
+     * Publica las métricas en el servidor MBean de la plataforma (si ya lo estaban, no hace nada).
+     */
+    public static synchronized void registrarMBean() throws JMException {
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        ObjectName nombre = new ObjectName(NOMBRE_MBEAN);
+        if (!servidor.isRegistered(nombre)) servidor.registerMBean(new Bean(), nombre);
+    }
+
+    // ───────────── Volcado periódico ─────────────
+
+    /**
+     * Añade el informe al archivo cada periodo, en un hilo en segundo plano (sustituye a un volcado anterior).
+     * @param archivo Archivo de texto donde se añaden los informes
+     * @param segundos Periodo entre volcados
+     */
+    public static synchronized void iniciarVolcado(File archivo, long segundos) {
+        detenerVolcado();
+        if (volcador == null) {
+            volcador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "volcado-metricas");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+        volcado = volcador.scheduleAtFixedRate(() -> {
+            try {
+                volcar(archivo);
+            } catch (IOException e) {
+                System.out.println("Aviso: no se pudieron volcar las métricas: " + e.getMessage());
+            }
+        }, segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene el volcado periódico (el archivo se conserva).
+     */
+    public static synchronized void detenerVolcado() {
+        if (volcado != null) volcado.cancel(false);
+        volcado = null;
+    }
+
+    /**
+     * Añade el informe actual al final del archivo.
+     */
+    public static void volcar(File archivo) throws IOException {
+        String informe = informe();
+        synchronized (Metricas.class) {
+            try (PrintWriter out = new PrintWriter(new FileWriter(archivo, true))) {
+                out.println(informe);
+            }
+        }
+    }
+}
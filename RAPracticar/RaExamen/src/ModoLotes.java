@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Modo por lotes (sin menú): aplica a la cuenta las operaciones de un archivo de órdenes o de la
+ * entrada estándar, una por línea:
+ *
+ *   ingresar 120.50
+ *   retirar 20
+ *   saldo
+ *   exportar informe csv,json     (formatos separados por espacios o comas; sin formatos, los tres)
+ *
+ * Las líneas vacías y las que empiezan por '#' se ignoran. Las cantidades admiten punto o coma decimal.
+ *
+ * La entrada se lee por bloques de bytes y cada línea se separa e interpreta sobre el búfer, sin crear
+ * cadenas por línea. Las respuestas (saldos y errores) se acumulan en un FormateadorTexto y se escriben
+ * por bloques, así que se pueden aplicar millones de operaciones en pocos segundos.
+ * Una línea no válida se informa y se sigue con las demás.
+ */
+public class ModoLotes {
+
+    // Caracteres de respuesta acumulados antes de escribirlos en la salida
+    private static final int MAX_PENDIENTE = 64 * 1024;
+
+    private static final byte[] INGRESAR = bytes("ingresar");
+    private static final byte[] RETIRAR = bytes("retirar");
+    private static final byte[] SALDO = bytes("saldo");
+    private static final byte[] EXPORTAR = bytes("exportar");
+    private static final byte[] CSV = bytes("csv");
+    private static final byte[] XML = bytes("xml");
+    private static final byte[] JSON = bytes("json");
+
+    private final Cuenta cuenta;
+    private final Writer salida;
+    private final FormateadorTexto respuesta = new FormateadorTexto();
+    private final Charset codificacion = Charset.defaultCharset();
+
+    // Palabras de la línea en curso: inicio y fin de cada una en el búfer
+    private int[] inicios = new int[8];
+    private int[] fines = new int[8];
+    private int palabras;
+
+    private int aplicadas;
+    private int rechazadas;
+    private int errores;
+
+    /**
+     * @param cuenta Cuenta sobre la que se aplican las operaciones
+     * @param salida Donde se escriben las respuestas (se vacía al terminar, no se cierra)
+     */
+    public ModoLotes(Cuenta cuenta, Writer salida) {
+        this.cuenta = cuenta;
+        this.salida = salida;
+    }
+
+    /**
+     * Operaciones aplicadas (ingresos, retiradas hechas, consultas y exportaciones).
+     */
+    public int getAplicadas() { return aplicadas; }
+
+    /**
+     * Retiradas rechazadas por saldo insuficiente.
+     */
+    public int getRechazadas() { return rechazadas; }
+
+    /**
+     * Líneas que no se pudieron interpretar o exportaciones fallidas.
+     */
+    public int getErrores() { return errores; }
+
+    /**
+     * Lee y aplica todas las órdenes de la entrada, hasta el final.
+     * @param entrada Órdenes, una por línea (no se cierra)
+     * @throws IOException si no se puede leer la entrada o escribir la salida
+     */
+    public void procesar(InputStream entrada) throws IOException {
+        byte[] buffer = new byte[ImportacionMovimientos.TAM_BUFFER];
+        int inicio = 0; // Principio de la línea en curso
+        int fin = 0;    // Bytes válidos en el búfer
+        int linea = 0;
+        boolean finEntrada = false;
+
+        while (true) {
+            // Busca el final de la línea en curso; si no está en el búfer, lee más
+            int salto = -1;
+            for (int i = inicio; i < fin; i++) {
+                if (buffer[i] == '\n') { salto = i; break; }
+            }
+            if (salto < 0 && !finEntrada) {
+                if (inicio > 0) { // Mueve la línea a medias al principio del búfer
+                    System.arraycopy(buffer, inicio, buffer, 0, fin - inicio);
+                    fin -= inicio;
+                    inicio = 0;
+                } else if (fin == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2); // Línea muy larga
+                }
+                int leidos = entrada.read(buffer, fin, buffer.length - fin);
+                if (leidos < 0) finEntrada = true;
+                else fin += leidos;
+                continue;
+            }
+            if (salto < 0 && inicio == fin) break; // Fin de la entrada
+
+            int finLinea = salto < 0 ? fin : salto;
+            linea++;
+            orden(buffer, inicio, finLinea, linea);
+            inicio = salto < 0 ? fin : salto + 1;
+        }
+
+        respuesta.texto("✅ Lote terminado: ").entero(aplicadas).texto(" operaciones aplicadas, ")
+                .entero(rechazadas).texto(" retiradas rechazadas, ").entero(errores).texto(" errores. Saldo: ")
+                .centimos(cuenta.getSaldoCentimos()).texto(" €").saltoLinea();
+        respuesta.volcar(salida);
+        salida.flush();
+    }
+
+    /**
+     * Separa en palabras e interpreta la orden de los bytes [desde, hasta).
+     */
+    private void orden(byte[] b, int desde, int hasta, int linea) throws IOException {
+        separar(b, desde, hasta);
+        if (palabras == 0 || b[inicios[0]] == '#') return;
+        minusculas(b, 0);
+
+        int p0 = inicios[0];
+        int f0 = fines[0];
+        if (ImportacionMovimientos.iguales(b, p0, f0, INGRESAR) || ImportacionMovimientos.iguales(b, p0, f0, RETIRAR)) {
+            boolean ingreso = b[p0] == 'i';
+            long centimos = palabras == 2 ? ImportacionMovimientos.centimos(b, inicios[1], fines[1], codificacion) : -1;
+            if (centimos <= 0) {
+                error(linea, "se esperaba una cantidad positiva");
+            } else if (ingreso) {
+                cuenta.ingresar(centimos / 100.0);
+                aplicadas++;
+            } else if (cuenta.retirar(centimos / 100.0)) {
+                aplicadas++;
+            } else {
+                rechazadas++;
+                respuesta.texto("Línea ").entero(linea).texto(": retirada rechazada por saldo insuficiente").saltoLinea();
+            }
+        } else if (ImportacionMovimientos.iguales(b, p0, f0, SALDO) && palabras == 1) {
+            respuesta.texto("Saldo: ").centimos(cuenta.getSaldoCentimos()).texto(" €").saltoLinea();
+            aplicadas++;
+        } else if (ImportacionMovimientos.iguales(b, p0, f0, EXPORTAR) && palabras >= 2) {
+            exportar(b, linea);
+        } else {
+            error(linea, "orden no válida");
+        }
+        if (respuesta.longitud() >= MAX_PENDIENTE) respuesta.volcar(salida);
+    }
+
+    /**
+     * "exportar nombre [formatos...]": exporta en este hilo, así que el archivo recoge justo
+     * las operaciones anteriores a esta línea.
+     */
+    private void exportar(byte[] b, int linea) throws IOException {
+        String nombre = new String(b, inicios[1], fines[1] - inicios[1], codificacion);
+        List<Exportador> exportadores = new ArrayList<>();
+        boolean[] elegidos = new boolean[3];
+        boolean alguno = false;
+        for (int i = 2; i < palabras; i++) {
+            minusculas(b, i);
+            // Cada palabra puede llevar varios formatos separados por comas ("csv,json")
+            for (int d = inicios[i]; d < fines[i]; d++) {
+                int h = d;
+                while (h < fines[i] && b[h] != ',') h++;
+                if (h > d) {
+                    int formato;
+                    if (ImportacionMovimientos.iguales(b, d, h, CSV)) formato = 0;
+                    else if (ImportacionMovimientos.iguales(b, d, h, XML)) formato = 1;
+                    else if (ImportacionMovimientos.iguales(b, d, h, JSON)) formato = 2;
+                    else {
+                        error(linea, "formato de exportación no válido");
+                        return;
+                    }
+                    elegidos[formato] = true;
+                    alguno = true;
+                }
+                d = h;
+            }
+        }
+        if (!alguno) Arrays.fill(elegidos, true);
+        if (elegidos[0]) exportadores.add(new ExportadorCSV());
+        if (elegidos[1]) exportadores.add(new ExportadorXML());
+        if (elegidos[2]) exportadores.add(new ExportadorJSON());
+
+        // Los exportadores escriben sus mensajes directamente: antes se vacía lo pendiente para no desordenarlos
+        respuesta.volcar(salida);
+        salida.flush();
+        if (ExportacionMultiple.exportar(cuenta, nombre, exportadores).size() == exportadores.size()) {
+            aplicadas++;
+        } else {
+            errores++;
+        }
+    }
+
+    /**
+     * Separa la línea en palabras (por espacios o tabuladores).
+     */
+    private void separar(byte[] b, int desde, int hasta) {
+        palabras = 0;
+        int i = desde;
+        while (true) {
+            while (i < hasta && separador(b[i])) i++;
+            if (i == hasta) return;
+            if (palabras == inicios.length) {
+                inicios = Arrays.copyOf(inicios, palabras * 2);
+                fines = Arrays.copyOf(fines, palabras * 2);
+            }
+            inicios[palabras] = i;
+            while (i < hasta && !separador(b[i])) i++;
+            fines[palabras++] = i;
+        }
+    }
+
+    private static boolean separador(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    /**
+     * Pasa a minúsculas (ASCII) la palabra indicada, para aceptar las órdenes en mayúsculas.
+     */
+    private void minusculas(byte[] b, int palabra) {
+        for (int i = inicios[palabra]; i < fines[palabra]; i++) {
+            if (b[i] >= 'A' && b[i] <= 'Z') b[i] += 'a' - 'A';
+        }
+    }
+
+    private void error(int linea, String mensaje) {
+        errores++;
+        respuesta.texto("❌ Línea ").entero(linea).texto(": ").texto(mensaje).saltoLinea();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(Charset.defaultCharset());
+    }
+}
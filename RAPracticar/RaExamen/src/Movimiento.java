@@ -1,5 +1,7 @@
 import java.io.Serializable;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -31,11 +33,50 @@ public class Movimiento implements Serializable {
      * @param cantidad Cantidad del movimiento (si es negativa se ajusta a 0)
      */
     public Movimiento(Tipo tipo, double cantidad) {
+        this(tipo, cantidad, LocalDateTime.now()); // Fecha/hora del momento de creación
+    }
+
+    /**
+     * Constructor de movimiento con fecha/hora conocida.
+     * Se usa al reconstruir movimientos guardados (diario, importaciones...).
+     * @param tipo Tipo de movimiento (INGRESO o RETIRADA)
+     * @param cantidad Cantidad del movimiento (si es negativa se ajusta a 0)
+     * @param fechaHora Fecha y hora original del movimiento
+     */
+    public Movimiento(Tipo tipo, double cantidad, LocalDateTime fechaHora) {
         this.tipo = tipo;
         this.cantidad = Math.max(0.0, cantidad); // Asegura que no haya cantidades negativas
-        this.fechaHora = LocalDateTime.now(); // Fecha/hora del momento de creación
+        this.fechaHora = fechaHora;
     }
 
+    // ───────────── Conversiones ─────────────
+    // Las fechas se guardan como milisegundos de la fecha/hora local tratada como UTC,
+    // así la conversión es exacta en los dos sentidos (sin depender de la zona horaria).
+
+    /**
+     * Convierte una cantidad en euros a céntimos, redondeando al céntimo más cercano.
+     */
+    public static long aCentimos(double cantidad) { return Math.round(cantidad * 100); }
+
+    /**
+     * Convierte una fecha/hora local a milisegundos.
+     */
+    public static long aMilis(LocalDateTime fechaHora) {
+        return fechaHora.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Convierte milisegundos (ver aMilis) de nuevo a fecha/hora local.
+     */
+    public static LocalDateTime desdeMilis(long milis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(milis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Devuelve la fecha/hora local actual en milisegundos.
+     */
+    public static long ahoraMilis() { return aMilis(LocalDateTime.now()); }
+
     // ───────────── Getters ─────────────
     public Tipo getTipo() { return tipo; }
     public double getCantidad() { return cantidad; }
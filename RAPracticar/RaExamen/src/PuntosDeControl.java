@@ -0,0 +1,155 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Puntos de control de la cuenta en segundo plano. Cuando el diario acumula demasiados movimientos
+ * o bytes, un hilo aparte guarda una copia completa nueva y descarta la parte del diario que ya
+ * recoge, así que arrancar (cargar la copia y reproducir el diario) no tarda más con el tiempo.
+ *
+ * Cada punto de control:
+ *  1. Empieza un segmento nuevo del diario; lo escrito hasta ese momento pasa al segmento anterior.
+ *  2. Guarda la copia con los N movimientos que tenía la cuenta entonces. Las posiciones [0, N)
+ *     ya no cambian, así que forman una copia coherente sin parar el menú ni duplicar la cuenta;
+ *     lo que llegue mientras tanto va al segmento nuevo.
+ *  3. La copia sustituye a la anterior con un movimiento atómico y se borra el segmento anterior.
+ * Tras un corte en cualquier punto, al arrancar se reproducen los dos segmentos y los movimientos
+ * que ya estén en la copia se saltan.
+ *
+ * Para que el arranque nunca reproduzca más de maxReproduccion registros, si el diario va a pasar
+ * de ese límite quien escribe en él espera a que termine el punto de control en curso.
+ */
+public final class PuntosDeControl implements AutoCloseable {
+
+    // Valores por defecto: movimientos o bytes del segmento actual que disparan un punto de control...
+    public static final long UMBRAL_MOVIMIENTOS = 10_000;
+    public static final long UMBRAL_BYTES = 1024 * 1024;
+
+    // ...y registros que, como mucho, se reproducen al arrancar
+    public static final long MAX_REPRODUCCION = 50_000;
+
+    private final Cuenta cuenta;
+    private final File archivoCuenta;
+    private final DiarioMovimientos diario;
+    private final long umbralMovimientos;
+    private final long umbralBytes;
+    private final long maxReproduccion;
+
+    private final ExecutorService hilo = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "punto-control");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean enCurso = new AtomicBoolean();
+    private volatile boolean cerrado;
+
+    /**
+     * Crea los puntos de control con los umbrales por defecto.
+     */
+    public PuntosDeControl(Cuenta cuenta, File archivoCuenta, DiarioMovimientos diario) {
+        this(cuenta, archivoCuenta, diario, UMBRAL_MOVIMIENTOS, UMBRAL_BYTES, MAX_REPRODUCCION);
+    }
+
+    /**
+     * Crea los puntos de control y los asocia al diario.
+     * @param cuenta            Cuenta del diario
+     * @param archivoCuenta     Archivo de la copia completa (cuenta.dat)
+     * @param diario            Diario de la cuenta, ya reproducido
+     * @param umbralMovimientos Movimientos del segmento actual que disparan un punto de control
+     * @param umbralBytes       Bytes del segmento actual que disparan un punto de control
+     * @param maxReproduccion   Registros que, como mucho, se reproducen al arrancar (no menor que umbralMovimientos)
+     */
+    public PuntosDeControl(Cuenta cuenta, File archivoCuenta, DiarioMovimientos diario,
+                           long umbralMovimientos, long umbralBytes, long maxReproduccion) {
+        if (umbralMovimientos <= 0 || umbralBytes <= 0 || maxReproduccion < umbralMovimientos) {
+            throw new IllegalArgumentException("Umbrales de punto de control no válidos");
+        }
+        this.cuenta = cuenta;
+        this.archivoCuenta = archivoCuenta;
+        this.diario = diario;
+        this.umbralMovimientos = umbralMovimientos;
+        this.umbralBytes = umbralBytes;
+        this.maxReproduccion = maxReproduccion;
+        diario.setPuntosDeControl(this);
+    }
+
+    public long getMaxReproduccion() { return maxReproduccion; }
+
+    /**
+     * Indica si el segmento actual del diario ya justifica un punto de control.
+     */
+    boolean superaUmbral(long registros, long bytes) {
+        return registros >= umbralMovimientos || bytes >= umbralBytes;
+    }
+
+    /**
+     * Indica si hay un punto de control pedido o guardándose.
+     */
+    boolean enCurso() {
+        return enCurso.get();
+    }
+
+    /**
+     * Pide un punto de control en segundo plano, salvo que ya haya uno en curso. Nunca bloquea.
+     * @return true si hay un punto de control en curso (este u otro anterior), false si ya están cerrados
+     */
+    boolean solicitar() {
+        if (cerrado) return false;
+        if (!enCurso.compareAndSet(false, true)) return true;
+        try {
+            hilo.execute(this::ejecutar);
+            return true;
+        } catch (RejectedExecutionException e) { // Cerrado mientras tanto
+            enCurso.set(false);
+            return false;
+        }
+    }
+
+    private void ejecutar() {
+        long inicio = Metricas.PUNTOS_CONTROL.empezar();
+        boolean guardado = false;
+        int n = 0;
+        try {
+            n = diario.empezarPuntoControl(cuenta);
+            FormatoBinarioCuenta.guardar(archivoCuenta, cuenta, n);
+            guardado = true;
+        } catch (IOException e) {
+            System.out.println("Aviso: no se pudo guardar el punto de control: " + e.getMessage());
+        } finally {
+            // Con el diario bloqueado, para que quien espera vea a la vez el fin y el diario ya reducido
+            synchronized (diario) {
+                enCurso.set(false);
+                try {
+                    diario.terminarPuntoControl(guardado, n);
+                } catch (IOException e) {
+                    System.out.println("Aviso: no se pudo borrar el segmento anterior del diario: " + e.getMessage());
+                }
+            }
+        }
+        if (guardado) Metricas.PUNTOS_CONTROL.terminar(inicio, n, archivoCuenta.length());
+    }
+
+    /**
+     * Deja de aceptar puntos de control y espera a que termine el que esté en curso
+     * (después ya se puede guardar la cuenta desde otro hilo sin pisarse).
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        hilo.shutdown();
+        boolean interrumpido = false;
+        while (true) {
+            try {
+                if (hilo.awaitTermination(1, TimeUnit.MINUTES)) break;
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) Thread.currentThread().interrupt();
+    }
+}
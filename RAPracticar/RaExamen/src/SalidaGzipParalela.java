@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Flujo de salida que comprime en formato gzip repartiendo el trabajo entre varios hilos (como pigz).
+ * Los datos se cortan en bloques de TAM_BLOQUE bytes y cada bloque se comprime por separado con
+ * Deflater como un miembro gzip completo (cabecera, datos y CRC32). Los miembros se escriben en orden,
+ * así que el resultado es un gzip estándar de varios miembros que gunzip, zcat o GZIPInputStream
+ * leen como un único fichero.
+ *
+ * Como mucho hay 2 bloques por hilo en vuelo, así que la memoria usada no depende del tamaño total.
+ */
+public class SalidaGzipParalela extends OutputStream {
+
+    // Tamaño de cada bloque sin comprimir (el mismo que usa pigz por defecto)
+    static final int TAM_BLOQUE = 128 * 1024;
+
+    // Cabecera gzip fija: firma, método deflate, sin flags, sin fecha, sistema desconocido
+    private static final byte[] CABECERA = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    // Cola de cada miembro: CRC32 y tamaño sin comprimir (little-endian)
+    private static final int COLA = 8;
+
+    private static final int HILOS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+    // Hilos compresores compartidos por todas las salidas (no impiden que termine el programa)
+    private static final ExecutorService COMPRESORES = Executors.newFixedThreadPool(HILOS, tarea -> {
+        Thread hilo = new Thread(tarea, "gzip-compresor");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Un Deflater por hilo compresor, reutilizado entre bloques
+    private static final ThreadLocal<Deflater> DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private final OutputStream destino;
+    private final ArrayDeque<Future<Miembro>> pendientes = new ArrayDeque<>();
+    private final int maxPendientes = 2 * HILOS;
+
+    private byte[] bloque = new byte[TAM_BLOQUE];
+    private int usado;
+    private boolean algunMiembro;
+    private boolean cerrado;
+
+    /**
+     * Miembro gzip ya comprimido: los primeros longitud bytes de datos.
+     */
+    private static final class Miembro {
+        final byte[] datos;
+        final int longitud;
+
+        Miembro(byte[] datos, int longitud) {
+            this.datos = datos;
+            this.longitud = longitud;
+        }
+    }
+
+    /**
+     * @param destino Flujo donde se escribe el gzip (se cierra al cerrar este)
+     */
+    public SalidaGzipParalela(OutputStream destino) {
+        this.destino = destino;
+    }
+
+    // ───────────── Escritura ─────────────
+
+    @Override
+    public void write(int b) throws IOException {
+        if (usado == bloque.length) enviarBloque();
+        bloque[usado++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (usado == bloque.length) enviarBloque();
+            int n = Math.min(len, bloque.length - usado);
+            System.arraycopy(b, off, bloque, usado, n);
+            usado += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Escribe los miembros que ya estén comprimidos. El bloque a medio llenar no se fuerza
+     * (igual que GZIPOutputStream), para no perder compresión con bloques pequeños.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pendientes.isEmpty() && pendientes.peekFirst().isDone()) escribirPrimero();
+        destino.flush();
+    }
+
+    /**
+     * Comprime el último bloque, espera a que terminen todos y cierra el destino.
+     */
+    @Override
+    public void close() throws IOException {
+        if (cerrado) return;
+        cerrado = true;
+        try {
+            if (usado > 0 || !algunMiembro) enviarBloque(); // Un gzip vacío sigue necesitando un miembro
+            while (!pendientes.isEmpty()) escribirPrimero();
+        } finally {
+            for (Future<Miembro> f : pendientes) f.cancel(false);
+            destino.close();
+        }
+    }
+
+    private void enviarBloque() throws IOException {
+        if (pendientes.size() >= maxPendientes) escribirPrimero();
+        byte[] datos = bloque;
+        int longitud = usado;
+        pendientes.addLast(COMPRESORES.submit(() -> comprimir(datos, longitud)));
+        algunMiembro = true;
+        bloque = new byte[TAM_BLOQUE];
+        usado = 0;
+    }
+
+    private void escribirPrimero() throws IOException {
+        Miembro m;
+        try {
+            m = pendientes.removeFirst().get();
+        } catch (ExecutionException e) {
+            throw new IOException("Error al comprimir un bloque: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compresión interrumpida", e);
+        }
+        destino.write(m.datos, 0, m.longitud);
+    }
+
+    // ───────────── Compresión de un bloque ─────────────
+
+    /**
+     * Comprime un bloque como miembro gzip completo (se ejecuta en un hilo compresor).
+     */
+    private static Miembro comprimir(byte[] datos, int longitud) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(datos, 0, longitud);
+        deflater.finish();
+
+        // Deflate puede ocupar algo más que la entrada si no se comprime; se amplía si hace falta
+        byte[] salida = new byte[CABECERA.length + longitud + longitud / 8 + 64 + COLA];
+        System.arraycopy(CABECERA, 0, salida, 0, CABECERA.length);
+        int pos = CABECERA.length;
+        while (!deflater.finished()) {
+            if (salida.length - pos - COLA == 0) salida = Arrays.copyOf(salida, salida.length * 2);
+            pos += deflater.deflate(salida, pos, salida.length - pos - COLA);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(datos, 0, longitud);
+        pos = enteroLE(salida, pos, (int) crc.getValue());
+        pos = enteroLE(salida, pos, longitud);
+        return new Miembro(salida, pos);
+    }
+
+    private static int enteroLE(byte[] b, int pos, int valor) {
+        b[pos] = (byte) valor;
+        b[pos + 1] = (byte) (valor >>> 8);
+        b[pos + 2] = (byte) (valor >>> 16);
+        b[pos + 3] = (byte) (valor >>> 24);
+        return pos + 4;
+    }
+}
@@ -0,0 +1,168 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Salida de exportación que escribe el texto en UTF-8 directamente con un FileChannel, sin
+ * FileOutputStream ni una llamada al sistema por cada bloque escrito.
+ *
+ * El texto se junta en un bloque de caracteres, se codifica con el codificador UTF-8 de Java sobre
+ * un bloque de bytes (con arrays usa su camino rápido vectorizado, que no tiene si el destino es un
+ * búfer directo) y cada bloque se copia de una vez a un búfer directo grande (TAM_TRAMO), que se
+ * escribe en el archivo con FileChannel.write al llenarse.
+ *
+ * Antes el archivo se mapeaba en memoria por tramos y se truncaba al cerrar, pero en Windows no se
+ * puede truncar un archivo mientras sigue mapeado (y Java solo lo desmapea cuando lo recoge el GC),
+ * así que el archivo se quedaba relleno de ceros. Ahora solo contiene lo escrito, también si la
+ * exportación se interrumpe. La codificación es siempre UTF-8, sin depender de la configuración de
+ * la plataforma.
+ */
+public class SalidaMapeada extends Writer {
+
+    // Bytes que se juntan en el búfer directo antes de escribirlos en el archivo
+    static final int TAM_TRAMO = 1024 * 1024;
+
+    // Caracteres que se juntan antes de codificarlos; en UTF-8 ocupan como mucho 3 bytes cada uno
+    private static final int TAM_BLOQUE = 16 * 1024;
+
+    private final FileChannel canal;
+    private ByteBuffer tramo; // null una vez cerrada
+    private long inicioTramo; // Posición en el archivo donde se escribirá el tramo
+
+    private final CharsetEncoder codificador = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer pendientes = CharBuffer.allocate(TAM_BLOQUE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(3 * TAM_BLOQUE);
+
+    /**
+     * Abre (o crea) el archivo para escribir a partir de una posición.
+     * @param archivo  Archivo destino
+     * @param posicion Bytes que se conservan del archivo (0 para escribirlo de nuevo)
+     */
+    public SalidaMapeada(File archivo, long posicion) throws IOException {
+        canal = FileChannel.open(archivo.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            canal.truncate(posicion);
+            if (canal.size() < posicion) throw new IOException("El archivo tiene menos de " + posicion + " bytes");
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+        tramo = ByteBuffer.allocateDirect(TAM_TRAMO);
+        inicioTramo = posicion;
+    }
+
+    /**
+     * Escribe el tramo en el archivo y lo deja vacío.
+     */
+    private void escribirTramo() throws IOException {
+        tramo.flip();
+        while (tramo.hasRemaining()) canal.write(tramo, inicioTramo + tramo.position());
+        inicioTramo += tramo.limit();
+        tramo.clear();
+    }
+
+    /**
+     * Bytes escritos en el archivo hasta el último flush() (incluidos los que ya tenía antes de la posición inicial).
+     */
+    public long getPosicion() {
+        return inicioTramo + tramo.position();
+    }
+
+    @Override
+    public void write(char[] texto, int desde, int n) throws IOException {
+        if (tramo == null) throw new IOException("La salida está cerrada");
+        if (n > pendientes.remaining()) {
+            codificarPendientes();
+            if (n > pendientes.remaining()) { // Texto grande: se codifica sin copiarlo
+                codificar(CharBuffer.wrap(texto, desde, n), false);
+                return;
+            }
+        }
+        pendientes.put(texto, desde, n);
+    }
+
+    @Override
+    public void write(String texto, int desde, int n) throws IOException {
+        if (tramo == null) throw new IOException("La salida está cerrada");
+        if (n > pendientes.remaining()) {
+            codificarPendientes();
+            if (n > pendientes.remaining()) {
+                codificar(CharBuffer.wrap(texto, desde, desde + n), false);
+                return;
+            }
+        }
+        pendientes.put(texto, desde, desde + n);
+    }
+
+    /**
+     * Codifica los caracteres juntados (un suplente alto sin su pareja se queda para la siguiente vez).
+     */
+    private void codificarPendientes() throws IOException {
+        pendientes.flip();
+        codificar(pendientes, false);
+        pendientes.compact();
+    }
+
+    private void codificar(CharBuffer texto, boolean fin) throws IOException {
+        while (true) {
+            CoderResult r = codificador.encode(texto, bytes, fin);
+            copiarBytes();
+            if (!r.isOverflow()) return;
+        }
+    }
+
+    /**
+     * Copia los bytes codificados al tramo, escribiéndolo en el archivo cada vez que se llena.
+     */
+    private void copiarBytes() throws IOException {
+        byte[] b = bytes.array();
+        int n = bytes.position();
+        int copiados = 0;
+        while (copiados < n) {
+            if (!tramo.hasRemaining()) escribirTramo();
+            int k = Math.min(n - copiados, tramo.remaining());
+            tramo.put(b, copiados, k);
+            copiados += k;
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Lleva al archivo todo lo escrito (el sistema lo lleva a disco).
+     */
+    @Override
+    public void flush() throws IOException {
+        if (tramo == null) throw new IOException("La salida está cerrada");
+        codificarPendientes();
+        escribirTramo();
+    }
+
+    /**
+     * Escribe lo que queda y cierra el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        if (tramo == null) return;
+        try {
+            pendientes.flip();
+            codificar(pendientes, true); // Un suplente sin pareja al final se escribe como '?'
+            codificador.flush(bytes);
+            copiarBytes();
+            escribirTramo();
+        } finally {
+            tramo = null;
+            canal.close();
+        }
+    }
+}
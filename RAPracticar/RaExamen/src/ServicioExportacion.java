@@ -0,0 +1,189 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servicio de exportación asíncrona.
+ * Cada formato (y cada cuenta) se exporta en su propio hilo virtual, así que el menú no
+ * se bloquea y, en una máquina con varios núcleos, exportar CSV + XML + JSON tarda
+ * aproximadamente lo mismo que el formato más lento.
+ *
+ * Cada exportación incluye los movimientos que tenía la cuenta al pedirla: el número se toma una
+ * vez por petición y se pasa a todos sus formatos, así que todos los archivos tienen los mismos.
+ *
+ * Dos exportaciones al mismo archivo (el mismo nombre base y formato, por ejemplo una incremental
+ * pedida mientras aún se escribe la anterior) no se solapan: la segunda espera a que termine la
+ * primera, en el orden en que se pidieron.
+ */
+public class ServicioExportacion implements AutoCloseable {
+
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Última exportación pedida de cada archivo (y su marca) mientras no termina: la siguiente al
+    // mismo archivo espera a que acabe
+    private final ConcurrentHashMap<String, CompletableFuture<Resultado>> enCurso = new ConcurrentHashMap<>();
+
+    /**
+     * Forma de escribir cada archivo.
+     */
+    private enum Modo { COMPLETA, INCREMENTAL, COMPRIMIDA, MAPEADA }
+
+    /**
+     * Resultado de exportar una cuenta a un formato.
+     */
+    public static final class Resultado {
+        private final String formato;
+        private final String ruta;
+        private final boolean exito;
+        private final long nanos;
+
+        Resultado(String formato, String ruta, boolean exito, long nanos) {
+            this.formato = formato;
+            this.ruta = ruta;
+            this.exito = exito;
+            this.nanos = nanos;
+        }
+
+        public String getFormato() { return formato; }
+        public String getRuta() { return ruta; }
+        public boolean isExito() { return exito; }
+        public long getNanos() { return nanos; }
+
+        @Override
+        public String toString() {
+            return (exito ? "✅ " : "❌ ") + formato + " (" + ruta + ") en "
+                    + String.format("%.1f", nanos / 1_000_000.0) + " ms";
+        }
+    }
+
+    /**
+     * Exporta una cuenta a varios formatos en paralelo, un hilo virtual por formato.
+     * @param cuenta        La cuenta a exportar
+     * @param nombreArchivo Nombre base de los archivos (sin extensión)
+     * @param exportadores  Formatos a generar
+     * @return Futuro que se completa con el resultado de cada formato, en el mismo orden
+     */
+    public CompletableFuture<List<Resultado>> exportar(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores) {
+        return exportar(cuenta, nombreArchivo, exportadores, null, null);
+    }
+
+    /**
+     * Exporta en paralelo solo los movimientos con fecha en [desde, hasta) (null significa sin límite).
+     * @return Futuro que se completa con el resultado de cada formato, en el mismo orden
+     */
+    public CompletableFuture<List<Resultado>> exportar(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores,
+                                                      LocalDateTime desde, LocalDateTime hasta) {
+        return exportar(cuenta, nombreArchivo, exportadores, desde, hasta, Modo.COMPLETA);
+    }
+
+    /**
+     * Exporta en paralelo a archivos comprimidos en gzip (".gz") los movimientos con fecha en
+     * [desde, hasta) (null significa sin límite).
+     * @return Futuro que se completa con el resultado de cada formato, en el mismo orden
+     */
+    public CompletableFuture<List<Resultado>> exportarComprimido(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores,
+                                                                LocalDateTime desde, LocalDateTime hasta) {
+        return exportar(cuenta, nombreArchivo, exportadores, desde, hasta, Modo.COMPRIMIDA);
+    }
+
+    /**
+     * Exporta en paralelo los movimientos con fecha en [desde, hasta) (null significa sin límite),
+     * escribiendo cada archivo en UTF-8 directamente con FileChannel (ver SalidaMapeada).
+     * @return Futuro que se completa con el resultado de cada formato, en el mismo orden
+     */
+    public CompletableFuture<List<Resultado>> exportarMapeado(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores,
+                                                             LocalDateTime desde, LocalDateTime hasta) {
+        return exportar(cuenta, nombreArchivo, exportadores, desde, hasta, Modo.MAPEADA);
+    }
+
+    /**
+     * Exporta en paralelo solo los movimientos nuevos desde la última exportación de cada archivo
+     * (ver ExportacionMultiple.exportarIncremental).
+     * @return Futuro que se completa con el resultado de cada formato, en el mismo orden
+     */
+    public CompletableFuture<List<Resultado>> exportarIncremental(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores) {
+        return exportar(cuenta, nombreArchivo, exportadores, null, null, Modo.INCREMENTAL);
+    }
+
+    private CompletableFuture<List<Resultado>> exportar(Cuenta cuenta, String nombreArchivo, List<Exportador> exportadores,
+                                                       LocalDateTime desde, LocalDateTime hasta, Modo modo) {
+        int movimientos = cuenta.getNumeroMovimientos();
+        List<CompletableFuture<Resultado>> tareas = new ArrayList<>();
+        for (Exportador e : exportadores) {
+            tareas.add(enviar(cuenta, movimientos, nombreArchivo, e, desde, hasta, modo));
+        }
+        return unir(tareas);
+    }
+
+    /**
+     * Exporta varias cuentas a varios formatos en paralelo (un hilo virtual por cuenta y formato).
+     * Cada archivo se llama nombreBase_DNI.
+     * @return Futuro con los resultados de todas las cuentas y formatos
+     */
+    public CompletableFuture<List<Resultado>> exportar(List<Cuenta> cuentas, String nombreBase, List<Exportador> exportadores) {
+        List<CompletableFuture<Resultado>> tareas = new ArrayList<>();
+        for (Cuenta c : cuentas) {
+            String nombre = nombreBase + "_" + c.getTitular().getDni();
+            int movimientos = c.getNumeroMovimientos();
+            for (Exportador e : exportadores) {
+                tareas.add(enviar(c, movimientos, nombre, e, null, null, Modo.COMPLETA));
+            }
+        }
+        return unir(tareas);
+    }
+
+    /**
+     * Lanza la exportación de un formato detrás de la última pedida para el mismo archivo, si aún no ha terminado.
+     */
+    private CompletableFuture<Resultado> enviar(Cuenta cuenta, int movimientos, String nombreArchivo, Exportador exportador,
+                                                LocalDateTime desde, LocalDateTime hasta, Modo modo) {
+        String ruta = ExportacionMultiple.ruta(nombreArchivo, exportador, modo == Modo.COMPRIMIDA);
+        // En Windows (y macOS) los nombres no distinguen mayúsculas: "A.csv" y "a.csv" son el mismo archivo
+        String clave = ruta.toLowerCase(Locale.ROOT);
+        CompletableFuture<Resultado> tarea = new CompletableFuture<>();
+        CompletableFuture<?> anterior = enCurso.put(clave, tarea);
+        if (anterior == null) anterior = CompletableFuture.completedFuture(null);
+        anterior.handleAsync((r, e) -> exportarFormato(cuenta, movimientos, nombreArchivo, ruta, exportador, desde, hasta, modo), hilos)
+                .whenComplete((r, e) -> {
+                    enCurso.remove(clave, tarea);
+                    if (e != null) tarea.completeExceptionally(e);
+                    else tarea.complete(r);
+                });
+        return tarea;
+    }
+
+    private static Resultado exportarFormato(Cuenta cuenta, int movimientos, String nombreArchivo, String ruta,
+                                             Exportador exportador, LocalDateTime desde, LocalDateTime hasta, Modo modo) {
+        long inicio = System.nanoTime();
+        List<Exportador> exportados = ExportacionMultiple.exportar(cuenta, nombreArchivo, List.of(exportador), desde, hasta,
+                movimientos, modo == Modo.INCREMENTAL, modo == Modo.COMPRIMIDA, modo == Modo.MAPEADA);
+        return new Resultado(exportador.getFormato(), ruta, !exportados.isEmpty(), System.nanoTime() - inicio);
+    }
+
+    private static CompletableFuture<List<Resultado>> unir(List<CompletableFuture<Resultado>> tareas) {
+        return CompletableFuture.allOf(tareas.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> tareas.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Espera a que terminen las exportaciones en curso y libera los hilos.
+     */
+    @Override
+    public void close() {
+        // Las que esperan a que termine otra del mismo archivo aún no se han enviado a los hilos;
+        // la última de cada archivo termina después de todas las anteriores
+        CompletableFuture.allOf(enCurso.values().toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+        hilos.shutdown();
+        try {
+            hilos.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Comprueba que el saldo que Cuenta mantiene en cada operación coincide con el que se obtiene
+ * recorriendo todos sus movimientos (recalcularSaldo), con historiales de millones de movimientos.
+ */
+class CuentaSaldoTest {
+
+    private static final int MOVIMIENTOS = 3_000_000;
+
+    private static Cuenta nuevaCuenta() {
+        return new Cuenta(new Cliente("Ana", "12345678A", 30));
+    }
+
+    @Test
+    void saldoCoincideConElRecalculadoEnUnHilo() {
+        Cuenta cuenta = nuevaCuenta();
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        long esperado = 0; // En céntimos, calculado aparte
+        for (int i = 0; i < MOVIMIENTOS; i++) {
+            long centimos = 1 + aleatorio.nextInt(100_000);
+            if (aleatorio.nextInt(3) == 0) {
+                if (cuenta.retirar(centimos / 100.0)) esperado -= centimos;
+            } else {
+                cuenta.ingresar(centimos / 100.0);
+                esperado += centimos;
+            }
+            if (i % 500_000 == 0) assertEquals(cuenta.recalcularSaldo(), cuenta.getSaldo());
+        }
+        assertEquals(esperado, cuenta.getSaldoCentimos());
+        assertEquals(cuenta.recalcularSaldo(), cuenta.getSaldo());
+    }
+
+    @Test
+    void saldoCoincideConElRecalculadoConVariosHilos() throws InterruptedException {
+        Cuenta cuenta = nuevaCuenta();
+        int hilos = 4;
+        AtomicLong esperado = new AtomicLong();
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            SplittableRandom aleatorio = new SplittableRandom(h);
+            Thread t = new Thread(() -> {
+                long propio = 0;
+                for (int i = 0; i < MOVIMIENTOS / hilos; i++) {
+                    long centimos = 1 + aleatorio.nextInt(100_000);
+                    if (aleatorio.nextBoolean()) {
+                        if (cuenta.retirar(centimos / 100.0)) propio -= centimos;
+                    } else {
+                        cuenta.ingresar(centimos / 100.0);
+                        propio += centimos;
+                    }
+                }
+                esperado.addAndGet(propio);
+            });
+            t.start();
+            trabajadores.add(t);
+        }
+        for (Thread t : trabajadores) t.join();
+
+        assertEquals(esperado.get(), cuenta.getSaldoCentimos());
+        assertEquals(cuenta.recalcularSaldo(), cuenta.getSaldo());
+    }
+}
@@ -0,0 +1,44 @@
+#!/bin/sh
+# Ejecuta los mismos benchmarks con RaExamenAntes y con RaExamen y muestra los resultados lado a lado.
+# Uso (desde RAPracticar/, después de "mvn package"):
+#   benchmarks/comparar.sh [opciones de JMH]      por ejemplo: benchmarks/comparar.sh CuentaBenchmark -p movimientos=10000
+set -e
+cd "$(dirname "$0")"
+
+java -jar target/benchmarks-antes.jar -rf csv -rff target/resultados-antes.csv "$@"
+java -jar target/benchmarks-raexamen.jar -rf csv -rff target/resultados-raexamen.csv "$@"
+
+# Une los dos CSV de JMH por benchmark y número de movimientos
+awk -F',' '
+    function limpiar(s) { gsub(/["\r]/, "", s); return s }
+    FNR == 1 {
+        fichero++
+        score = unidad = movs = formato = 0
+        for (i = 1; i <= NF; i++) {
+            col = limpiar($i)
+            if (col == "Score") score = i
+            if (col == "Unit") unidad = i
+            if (col == "Param: movimientos") movs = i
+            if (col == "Param: exportador") formato = i
+        }
+        next
+    }
+    {
+        clave = limpiar($1)
+        sub(/^rendimiento\./, "", clave)
+        if (formato && limpiar($formato) != "") clave = clave " " limpiar($formato)
+        clave = clave " n=" limpiar($movs)
+        if (!(clave in orden)) { orden[clave] = ++n; claves[n] = clave }
+        valor[fichero, clave] = limpiar($score)
+        unidades[clave] = limpiar($unidad)
+    }
+    END {
+        printf "%-50s %14s %14s %8s\n", "Benchmark", "RaExamenAntes", "RaExamen", "Mejora"
+        for (i = 1; i <= n; i++) {
+            c = claves[i]
+            a = valor[1, c]; b = valor[2, c]
+            printf "%-50s %14s %14s %8s  %s\n", c, (a == "" ? "-" : a), (b == "" ? "-" : b),
+                   (a != "" && b + 0 > 0 ? sprintf("x%.1f", a / b) : ""), unidades[c]
+        }
+    }
+' target/resultados-antes.csv target/resultados-raexamen.csv
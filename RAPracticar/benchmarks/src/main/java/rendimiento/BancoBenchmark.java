@@ -0,0 +1,116 @@
+package rendimiento;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ingresos y retiradas en el registro de cuentas (Banco) con CUENTAS cuentas, repartidos entre un
+ * número de hilos que se elige con el parámetro hilos. Cada invocación hace OPERACIONES operaciones
+ * sobre cuentas al azar, repartidas a partes iguales entre los hilos, así que el resultado
+ * (operaciones por microsegundo) muestra cómo escala el banco al añadir hilos.
+ * Solo existe en RaExamen: en RaExamenAntes el lanzador (Benchmarks) lo excluye.
+ * Las cuentas se guardan en una carpeta temporal que se borra al terminar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BancoBenchmark {
+
+    // Cuentas del banco, con DNI "00000000" a "00009999"
+    static final int CUENTAS = 10_000;
+
+    // Operaciones de cada invocación (divisible entre cualquier número de hilos del parámetro)
+    static final int OPERACIONES = 1 << 14;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int hilos;
+
+    private final String[] dnis = new String[CUENTAS];
+    private Path carpeta;
+    private ExecutorService ejecutor;
+    private Object banco;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        carpeta = Files.createTempDirectory("banco");
+        banco = Variante.nuevoBanco(carpeta.toFile());
+        for (int i = 0; i < CUENTAS; i++) {
+            dnis[i] = String.format("%08d", i);
+            Variante.abrirCuenta(banco, dnis[i]);
+            Variante.ingresar(banco, dnis[i], 1_000_000_000.0); // Saldo de sobra para retirar
+        }
+        Variante.guardarTodas(banco);
+        ejecutor = Executors.newFixedThreadPool(hilos);
+    }
+
+    /**
+     * Vuelve a abrir el banco en cada iteración, para que los historiales no crezcan sin límite con
+     * los movimientos del propio benchmark. Las cuentas se cargan aquí, no mientras se mide.
+     */
+    @Setup(Level.Iteration)
+    public void recargar() throws IOException {
+        banco = Variante.nuevoBanco(carpeta.toFile());
+        for (String dni : dnis) Variante.obtener(banco, dni);
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        ejecutor.shutdownNow();
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            for (Path p : (Iterable<Path>) archivos::iterator) Files.deleteIfExists(p);
+        }
+        Files.deleteIfExists(carpeta);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERACIONES)
+    public void operar() throws InterruptedException, ExecutionException {
+        List<Future<?>> tareas = new ArrayList<>(hilos);
+        for (int h = 0; h < hilos; h++) tareas.add(ejecutor.submit(this::operarEnHilo));
+        for (Future<?> tarea : tareas) tarea.get();
+    }
+
+    // La parte de las operaciones de un hilo: ingresos y retiradas a partes iguales
+    private void operarEnHilo() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        try {
+            for (int i = OPERACIONES / hilos; i > 0; i--) {
+                String dni = dnis[aleatorio.nextInt(CUENTAS)];
+                boolean hecha = (i & 1) == 0
+                        ? Variante.ingresar(banco, dni, 10.5)
+                        : Variante.retirar(banco, dni, 0.01);
+                if (!hecha) throw new IllegalStateException("Operación rechazada en la cuenta " + dni);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
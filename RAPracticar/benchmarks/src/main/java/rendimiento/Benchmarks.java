@@ -0,0 +1,36 @@
+package rendimiento;
+
+import java.io.IOException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lanzador de los benchmarks: admite las mismas opciones que JMH (por ejemplo "-rf csv -rff resultados.csv"
+ * o una expresión regular con los benchmarks a ejecutar) y excluye los que la versión cargada no puede
+ * ejecutar (en RaExamenAntes, los exportadores, el banco, las consultas del saldo histórico y los de
+ * varios hilos).
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws CommandLineOptionException, IOException, RunnerException {
+        CommandLineOptions opciones = new CommandLineOptions(args);
+        if (opciones.shouldHelp() || opciones.shouldList() || opciones.shouldListProfilers()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        System.out.println("Versión medida: " + Variante.NOMBRE);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(opciones);
+        if (!Variante.CON_EXPORTACION) {
+            builder.exclude(ExportadorBenchmark.class.getSimpleName());
+            builder.exclude(ContencionBenchmark.class.getSimpleName());
+            builder.exclude(BancoBenchmark.class.getSimpleName());
+            builder.exclude(ConsultaBenchmark.class.getSimpleName());
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package rendimiento;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Consultas del saldo histórico sobre historiales grandes: el saldo en una fecha (getSaldoEn) y el
+ * saldo mínimo de un rango, por fechas (getSaldoMinimoEntre) y por posiciones (getSaldoMinimoCentimos).
+ * Las dos son O(log n), así que pasar de 1 a 10 millones de movimientos apenas debería notarse.
+ * Las fechas y posiciones de las consultas se eligen al azar dentro del historial antes de medir.
+ * Solo existe en RaExamen: en RaExamenAntes el lanzador (Benchmarks) lo excluye.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ConsultaBenchmark {
+
+    // Consultas preparadas (potencia de dos); se usan en orden y se vuelve a empezar
+    private static final int CONSULTAS = 1024;
+
+    @Param({"1000000", "10000000"})
+    public int movimientos;
+
+    private Object cuenta;
+    private final LocalDateTime[] fechas = new LocalDateTime[CONSULTAS];
+    private final LocalDateTime[] hastas = new LocalDateTime[CONSULTAS];
+    private final int[] desdes = new int[CONSULTAS];
+    private final int[] hastasPosicion = new int[CONSULTAS];
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        cuenta = Variante.cuentaCon(movimientos);
+        int n = Variante.getNumeroMovimientos(cuenta);
+        long primera = Variante.getFechaMilis(cuenta, 0);
+        long ultima = Variante.getFechaMilis(cuenta, n - 1);
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        for (int i = 0; i < CONSULTAS; i++) {
+            long a = aleatorio.nextLong(primera, ultima + 1);
+            long b = aleatorio.nextLong(primera, ultima + 1);
+            fechas[i] = fecha(Math.min(a, b));
+            hastas[i] = fecha(Math.max(a, b) + 1);
+            int p = aleatorio.nextInt(n + 1);
+            int q = aleatorio.nextInt(n + 1);
+            desdes[i] = Math.min(p, q);
+            hastasPosicion[i] = Math.max(p, q);
+        }
+    }
+
+    // Mismo paso de milisegundos a fecha que Movimiento.desdeMilis
+    private static LocalDateTime fecha(long milis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(milis), ZoneOffset.UTC);
+    }
+
+    private int siguiente() {
+        return siguiente++ & (CONSULTAS - 1);
+    }
+
+    @Benchmark
+    public double getSaldoEn() {
+        return Variante.getSaldoEn(cuenta, fechas[siguiente()]);
+    }
+
+    @Benchmark
+    public double getSaldoMinimoEntre() {
+        int i = siguiente();
+        return Variante.getSaldoMinimoEntre(cuenta, fechas[i], hastas[i]);
+    }
+
+    @Benchmark
+    public long getSaldoMinimoCentimos() {
+        int i = siguiente();
+        return Variante.getSaldoMinimoCentimos(cuenta, desdes[i], hastasPosicion[i]);
+    }
+}
@@ -0,0 +1,95 @@
+package rendimiento;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Varios hilos operando a la vez sobre la misma cuenta. Compara la cuenta tal cual (sin bloqueos:
+ * un compareAndSet sobre el saldo por operación) con la misma cuenta usada con un synchronized
+ * alrededor de cada operación, como haría falta con una cuenta que no admite varios hilos.
+ * Solo existe en RaExamen: la cuenta de RaExamenAntes no es segura con varios hilos, así que el
+ * lanzador (Benchmarks) lo excluye.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ContencionBenchmark {
+
+    // "sinBloqueo": la cuenta tal cual; "synchronized": cada operación con un mismo candado
+    @Param({"sinBloqueo", "synchronized"})
+    public String acceso;
+
+    private final Object candado = new Object();
+    private boolean bloquear;
+    private Object cuenta;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        bloquear = acceso.equals("synchronized");
+        cuenta = Variante.cuentaCon(1); // Solo un ingreso grande, para poder retirar
+    }
+
+    // ───────────── Todos los hilos ingresan ─────────────
+
+    @Benchmark
+    @Threads(4)
+    public void ingresar() {
+        if (bloquear) {
+            synchronized (candado) {
+                Variante.ingresar(cuenta, 10.5);
+            }
+        } else {
+            Variante.ingresar(cuenta, 10.5);
+        }
+    }
+
+    // ───────────── Mezcla: dos hilos ingresan, uno retira y otro consulta el saldo ─────────────
+
+    @Benchmark
+    @Group("mixto")
+    @GroupThreads(2)
+    public void mixtoIngresar() {
+        ingresar();
+    }
+
+    @Benchmark
+    @Group("mixto")
+    @GroupThreads(1)
+    public boolean mixtoRetirar() {
+        if (bloquear) {
+            synchronized (candado) {
+                return Variante.retirar(cuenta, 0.01);
+            }
+        }
+        return Variante.retirar(cuenta, 0.01);
+    }
+
+    @Benchmark
+    @Group("mixto")
+    @GroupThreads(1)
+    public double mixtoGetSaldo() {
+        if (bloquear) {
+            synchronized (candado) {
+                return Variante.getSaldo(cuenta);
+            }
+        }
+        return Variante.getSaldo(cuenta);
+    }
+}
@@ -0,0 +1,55 @@
+package rendimiento;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operaciones básicas de la cuenta (ingresar, retirar y consultar el saldo) con historiales de
+ * distintos tamaños. La cuenta se vuelve a crear en cada iteración, para que el historial no crezca
+ * sin límite con los movimientos que añade el propio benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CuentaBenchmark {
+
+    // Movimientos que ya tiene la cuenta antes de medir (el primero es un ingreso grande, para poder retirar)
+    @Param({"1", "10000", "1000000"})
+    public int movimientos;
+
+    private Object cuenta;
+
+    @Setup(Level.Iteration)
+    public void preparar() {
+        cuenta = Variante.cuentaCon(movimientos);
+    }
+
+    @Benchmark
+    public void ingresar() {
+        Variante.ingresar(cuenta, 10.5);
+    }
+
+    @Benchmark
+    public boolean retirar() {
+        return Variante.retirar(cuenta, 0.01);
+    }
+
+    @Benchmark
+    public double getSaldo() {
+        return Variante.getSaldo(cuenta);
+    }
+}
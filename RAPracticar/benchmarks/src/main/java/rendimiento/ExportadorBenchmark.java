@@ -0,0 +1,75 @@
+package rendimiento;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exportación completa de la cuenta con cada exportador (ExportadorCSV, ExportadorXML y ExportadorJSON).
+ * Solo existe en RaExamen: en RaExamenAntes el lanzador (Benchmarks) lo excluye.
+ * Los archivos se escriben en exportaciones_banco/ (dentro del directorio actual) y se borran al terminar.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExportadorBenchmark {
+
+    private static final String NOMBRE_ARCHIVO = "benchmark-exportacion";
+
+    @Param({"ExportadorCSV", "ExportadorXML", "ExportadorJSON"})
+    public String exportador;
+
+    @Param({"1000", "100000", "1000000"})
+    public int movimientos;
+
+    private Object cuenta;
+    private MethodHandle exportar;
+    private PrintStream salida;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        cuenta = Variante.cuentaCon(movimientos);
+        exportar = Variante.exportador(exportador);
+        salida = Variante.silenciarSalida();
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        System.setOut(salida);
+        Path carpeta = new File("exportaciones_banco").toPath();
+        if (!Files.isDirectory(carpeta)) return;
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            for (Path p : (Iterable<Path>) archivos::iterator) {
+                if (p.getFileName().toString().startsWith(NOMBRE_ARCHIVO)) Files.delete(p);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean exportar() throws Throwable {
+        boolean ok = (boolean) exportar.invokeExact(cuenta, NOMBRE_ARCHIVO);
+        if (!ok) throw new IllegalStateException("La exportación falló");
+        return ok;
+    }
+}
@@ -0,0 +1,73 @@
+package rendimiento;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Guardado y carga de la cuenta en disco, como AppBanco.guardarCuenta y AppBanco.cargarCuenta
+ * (formato binario en RaExamen, serialización de Java en RaExamenAntes).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PersistenciaBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int movimientos;
+
+    private Object cuenta;
+    private File archivo;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        cuenta = Variante.cuentaCon(movimientos);
+        archivo = File.createTempFile("cuenta", ".dat");
+
+        // Comprueba la ida y vuelta antes de medir
+        Variante.guardar(archivo, cuenta);
+        Object cargada = Variante.cargar(archivo);
+        if (Variante.getSaldo(cargada) != Variante.getSaldo(cuenta)) {
+            throw new IllegalStateException("La cuenta cargada no coincide con la guardada");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        Files.deleteIfExists(archivo.toPath());
+    }
+
+    @Benchmark
+    public File guardar() throws IOException {
+        Variante.guardar(archivo, cuenta);
+        return archivo;
+    }
+
+    @Benchmark
+    public Object cargar() throws IOException {
+        return Variante.cargar(archivo);
+    }
+
+    @Benchmark
+    public Object idaYVuelta() throws IOException {
+        Variante.guardar(archivo, cuenta);
+        return Variante.cargar(archivo);
+    }
+}
@@ -0,0 +1,379 @@
+package rendimiento;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDateTime;
+
+/**
+ * Acceso a la versión de la práctica que esté en el classpath (RaExamen o RaExamenAntes).
+ *
+ * Las clases de la práctica están en el paquete por defecto, que no se puede importar desde un paquete
+ * con nombre (y JMH no admite benchmarks en el paquete por defecto), así que se llaman con MethodHandle.
+ * Al estar en campos static final, el JIT los trata como constantes y los integra en el código del
+ * benchmark, así que no añaden coste apreciable a lo que se mide.
+ */
+public final class Variante {
+
+    /**
+     * Nombre de la versión cargada: "RaExamen" o "RaExamenAntes".
+     */
+    public static final String NOMBRE;
+
+    // true si la versión tiene exportadores y formato binario (RaExamen, cuya cuenta también admite varios hilos)
+    public static final boolean CON_EXPORTACION;
+
+    private static final Class<?> CUENTA;
+    private static final MethodHandle NUEVO_CLIENTE;
+    private static final MethodHandle NUEVA_CUENTA;
+    private static final MethodHandle INGRESAR;
+    private static final MethodHandle RETIRAR;
+    private static final MethodHandle GET_SALDO;
+
+    // Formato binario (solo RaExamen)
+    private static final MethodHandle GUARDAR_BINARIO;
+    private static final MethodHandle CARGAR_BINARIO;
+
+    // Registro de cuentas (solo RaExamen)
+    private static final MethodHandle NUEVO_BANCO;
+    private static final MethodHandle ABRIR_CUENTA;
+    private static final MethodHandle OBTENER;
+    private static final MethodHandle INGRESAR_BANCO;
+    private static final MethodHandle RETIRAR_BANCO;
+    private static final MethodHandle GUARDAR_TODAS;
+
+    // Consultas por posición y por fecha (solo RaExamen)
+    private static final MethodHandle NUMERO_MOVIMIENTOS;
+    private static final MethodHandle FECHA_MILIS;
+    private static final MethodHandle SALDO_EN;
+    private static final MethodHandle SALDO_MINIMO_ENTRE;
+    private static final MethodHandle SALDO_MINIMO_CENTIMOS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> cliente = Class.forName("Cliente");
+            CUENTA = Class.forName("Cuenta");
+            NUEVO_CLIENTE = lookup.findConstructor(cliente,
+                    MethodType.methodType(void.class, String.class, String.class, int.class))
+                    .asType(MethodType.methodType(Object.class, String.class, String.class, int.class));
+            NUEVA_CUENTA = lookup.findConstructor(CUENTA, MethodType.methodType(void.class, cliente))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            INGRESAR = lookup.findVirtual(CUENTA, "ingresar", MethodType.methodType(void.class, double.class))
+                    .asType(MethodType.methodType(void.class, Object.class, double.class));
+            RETIRAR = lookup.findVirtual(CUENTA, "retirar", MethodType.methodType(boolean.class, double.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class, double.class));
+            GET_SALDO = lookup.findVirtual(CUENTA, "getSaldo", MethodType.methodType(double.class))
+                    .asType(MethodType.methodType(double.class, Object.class));
+
+            Class<?> formato = clase("FormatoBinarioCuenta");
+            CON_EXPORTACION = formato != null;
+            NOMBRE = CON_EXPORTACION ? "RaExamen" : "RaExamenAntes";
+            if (CON_EXPORTACION) {
+                GUARDAR_BINARIO = lookup.findStatic(formato, "guardar",
+                        MethodType.methodType(void.class, File.class, CUENTA))
+                        .asType(MethodType.methodType(void.class, File.class, Object.class));
+                CARGAR_BINARIO = lookup.findStatic(formato, "cargar", MethodType.methodType(CUENTA, File.class))
+                        .asType(MethodType.methodType(Object.class, File.class));
+
+                Class<?> banco = Class.forName("Banco");
+                NUEVO_BANCO = lookup.findConstructor(banco, MethodType.methodType(void.class, File.class))
+                        .asType(MethodType.methodType(Object.class, File.class));
+                ABRIR_CUENTA = lookup.findVirtual(banco, "abrirCuenta", MethodType.methodType(CUENTA, cliente))
+                        .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+                OBTENER = lookup.findVirtual(banco, "obtener", MethodType.methodType(CUENTA, String.class))
+                        .asType(MethodType.methodType(Object.class, Object.class, String.class));
+                INGRESAR_BANCO = lookup.findVirtual(banco, "ingresar",
+                                MethodType.methodType(boolean.class, String.class, double.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class, String.class, double.class));
+                RETIRAR_BANCO = lookup.findVirtual(banco, "retirar",
+                                MethodType.methodType(boolean.class, String.class, double.class))
+                        .asType(MethodType.methodType(boolean.class, Object.class, String.class, double.class));
+                GUARDAR_TODAS = lookup.findVirtual(banco, "guardarTodas", MethodType.methodType(void.class))
+                        .asType(MethodType.methodType(void.class, Object.class));
+
+                NUMERO_MOVIMIENTOS = lookup.findVirtual(CUENTA, "getNumeroMovimientos", MethodType.methodType(int.class))
+                        .asType(MethodType.methodType(int.class, Object.class));
+                FECHA_MILIS = lookup.findVirtual(CUENTA, "getFechaMilis", MethodType.methodType(long.class, int.class))
+                        .asType(MethodType.methodType(long.class, Object.class, int.class));
+                SALDO_EN = lookup.findVirtual(CUENTA, "getSaldoEn",
+                                MethodType.methodType(double.class, LocalDateTime.class))
+                        .asType(MethodType.methodType(double.class, Object.class, LocalDateTime.class));
+                SALDO_MINIMO_ENTRE = lookup.findVirtual(CUENTA, "getSaldoMinimoEntre",
+                                MethodType.methodType(double.class, LocalDateTime.class, LocalDateTime.class))
+                        .asType(MethodType.methodType(double.class, Object.class, LocalDateTime.class, LocalDateTime.class));
+                SALDO_MINIMO_CENTIMOS = lookup.findVirtual(CUENTA, "getSaldoMinimoCentimos",
+                                MethodType.methodType(long.class, int.class, int.class))
+                        .asType(MethodType.methodType(long.class, Object.class, int.class, int.class));
+            } else {
+                GUARDAR_BINARIO = null;
+                CARGAR_BINARIO = null;
+                NUEVO_BANCO = null;
+                ABRIR_CUENTA = null;
+                OBTENER = null;
+                INGRESAR_BANCO = null;
+                RETIRAR_BANCO = null;
+                GUARDAR_TODAS = null;
+                NUMERO_MOVIMIENTOS = null;
+                FECHA_MILIS = null;
+                SALDO_EN = null;
+                SALDO_MINIMO_ENTRE = null;
+                SALDO_MINIMO_CENTIMOS = null;
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Variante() { }
+
+    private static Class<?> clase(String nombre) {
+        try {
+            return Class.forName(nombre);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    // ───────────── Cuenta ─────────────
+
+    /**
+     * Crea una cuenta vacía.
+     */
+    public static Object nuevaCuenta() {
+        try {
+            return (Object) NUEVA_CUENTA.invokeExact((Object) NUEVO_CLIENTE.invokeExact("Ana", "12345678A", 30));
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    /**
+     * Crea una cuenta con n movimientos que alternan ingresos y retiradas, con saldo de sobra
+     * para retirar durante el benchmark.
+     */
+    public static Object cuentaCon(int n) {
+        Object cuenta = nuevaCuenta();
+        if (n > 0) ingresar(cuenta, 1_000_000_000.0);
+        for (int i = 1; i < n; i++) {
+            if (i % 2 == 0) retirar(cuenta, 12.34);
+            else ingresar(cuenta, 56.78);
+        }
+        return cuenta;
+    }
+
+    public static void ingresar(Object cuenta, double cantidad) {
+        try {
+            INGRESAR.invokeExact(cuenta, cantidad);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    public static boolean retirar(Object cuenta, double cantidad) {
+        try {
+            return (boolean) RETIRAR.invokeExact(cuenta, cantidad);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    public static double getSaldo(Object cuenta) {
+        try {
+            return (double) GET_SALDO.invokeExact(cuenta);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    // ───────────── Consultas (solo RaExamen) ─────────────
+
+    public static int getNumeroMovimientos(Object cuenta) {
+        try {
+            return (int) NUMERO_MOVIMIENTOS.invokeExact(cuenta);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    /**
+     * Fecha del movimiento i en milisegundos (UTC, como Movimiento.aMilis).
+     */
+    public static long getFechaMilis(Object cuenta, int i) {
+        try {
+            return (long) FECHA_MILIS.invokeExact(cuenta, i);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    public static double getSaldoEn(Object cuenta, LocalDateTime fecha) {
+        try {
+            return (double) SALDO_EN.invokeExact(cuenta, fecha);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    public static double getSaldoMinimoEntre(Object cuenta, LocalDateTime desde, LocalDateTime hasta) {
+        try {
+            return (double) SALDO_MINIMO_ENTRE.invokeExact(cuenta, desde, hasta);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    public static long getSaldoMinimoCentimos(Object cuenta, int desde, int hasta) {
+        try {
+            return (long) SALDO_MINIMO_CENTIMOS.invokeExact(cuenta, desde, hasta);
+        } catch (Throwable t) {
+            throw propagar(t);
+        }
+    }
+
+    // ───────────── Persistencia ─────────────
+
+    /**
+     * Guarda la cuenta igual que AppBanco.guardarCuenta de la versión cargada
+     * (formato binario en RaExamen, serialización de Java en RaExamenAntes).
+     */
+    public static void guardar(File archivo, Object cuenta) throws IOException {
+        if (CON_EXPORTACION) {
+            try {
+                GUARDAR_BINARIO.invokeExact(archivo, cuenta);
+            } catch (Throwable t) {
+                throw propagarIO(t);
+            }
+            return;
+        }
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(archivo))) {
+            oos.writeObject(cuenta);
+            oos.flush();
+        }
+    }
+
+    /**
+     * Carga la cuenta igual que AppBanco.cargarCuenta de la versión cargada.
+     */
+    public static Object cargar(File archivo) throws IOException {
+        if (CON_EXPORTACION) {
+            try {
+                return (Object) CARGAR_BINARIO.invokeExact(archivo);
+            } catch (Throwable t) {
+                throw propagarIO(t);
+            }
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(archivo))) {
+            return CUENTA.cast(ois.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // ───────────── Banco (solo RaExamen) ─────────────
+
+    /**
+     * Crea el registro de cuentas sobre una carpeta con un fichero por cuenta.
+     */
+    public static Object nuevoBanco(File carpeta) throws IOException {
+        try {
+            return (Object) NUEVO_BANCO.invokeExact(carpeta);
+        } catch (Throwable t) {
+            throw propagarIO(t);
+        }
+    }
+
+    /**
+     * Abre (y guarda) una cuenta vacía para el DNI indicado.
+     */
+    public static void abrirCuenta(Object banco, String dni) throws IOException {
+        try {
+            Object cuenta = (Object) ABRIR_CUENTA.invokeExact(banco, (Object) NUEVO_CLIENTE.invokeExact("Ana", dni, 30));
+            if (cuenta == null) throw new IllegalStateException("Ya existe una cuenta con DNI " + dni);
+        } catch (Throwable t) {
+            throw propagarIO(t);
+        }
+    }
+
+    /**
+     * Devuelve la cuenta del DNI, cargándola de disco si aún no está en memoria (null si no existe).
+     */
+    public static Object obtener(Object banco, String dni) throws IOException {
+        try {
+            return (Object) OBTENER.invokeExact(banco, dni);
+        } catch (Throwable t) {
+            throw propagarIO(t);
+        }
+    }
+
+    public static boolean ingresar(Object banco, String dni, double cantidad) throws IOException {
+        try {
+            return (boolean) INGRESAR_BANCO.invokeExact(banco, dni, cantidad);
+        } catch (Throwable t) {
+            throw propagarIO(t);
+        }
+    }
+
+    public static boolean retirar(Object banco, String dni, double cantidad) throws IOException {
+        try {
+            return (boolean) RETIRAR_BANCO.invokeExact(banco, dni, cantidad);
+        } catch (Throwable t) {
+            throw propagarIO(t);
+        }
+    }
+
+    public static void guardarTodas(Object banco) throws IOException {
+        try {
+            GUARDAR_TODAS.invokeExact(banco);
+        } catch (Throwable t) {
+            throw propagarIO(t);
+        }
+    }
+
+    // ───────────── Exportadores (solo RaExamen) ─────────────
+
+    /**
+     * Devuelve el método estático exportar(Cuenta, String) del exportador indicado ("ExportadorCSV"...),
+     * adaptado a (Object, String)boolean.
+     */
+    public static MethodHandle exportador(String clase) {
+        try {
+            return MethodHandles.publicLookup().findStatic(Class.forName(clase), "exportar",
+                            MethodType.methodType(boolean.class, CUENTA, String.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(NOMBRE + " no tiene " + clase, e);
+        }
+    }
+
+    /**
+     * Sustituye System.out por una salida que descarta todo (los exportadores escriben un mensaje
+     * por archivo) y devuelve la original para restaurarla.
+     */
+    public static PrintStream silenciarSalida() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+
+    // ───────────── Auxiliares ─────────────
+
+    private static RuntimeException propagar(Throwable t) {
+        if (t instanceof RuntimeException e) return e;
+        if (t instanceof Error e) throw e;
+        return new IllegalStateException(t);
+    }
+
+    private static IOException propagarIO(Throwable t) {
+        if (t instanceof IOException e) return e;
+        throw propagar(t);
+    }
+}